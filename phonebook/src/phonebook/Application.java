@@ -11,8 +11,11 @@ import java.util.*;
  */
 public class Application {
 
+    private static final int BUBBLE_SORT_LIMIT = 10_000;
     private static final Scanner SCANNER;
-    private static List<String> directory;
+    private static File directoryFile;
+    private static Directory directory;
+    private static MappedDirectory mappedDirectory;
     private static List<String> targets;
     private static boolean active;
 
@@ -30,7 +33,7 @@ public class Application {
 
         System.out.println("Input filename to process data from: ");
         String input = SCANNER.nextLine();
-        File directoryFile = new File(input);
+        directoryFile = new File(input);
         if (!directoryFile.exists() || !directoryFile.isFile()) {
             System.out.println("Filename does not exists. Using default 'directory.txt'");
             directoryFile = new File("directory.txt");
@@ -44,7 +47,10 @@ public class Application {
             targetsFile = new File("targets.txt");
         }
 
-        directory = readFromFile(directoryFile);
+        mappedDirectory = mapFile(directoryFile);
+        if (mappedDirectory != null) {
+            directory = Directory.parse(mappedDirectory);
+        }
         targets = readFromFile(targetsFile);
     }
 
@@ -73,6 +79,24 @@ public class Application {
         return array;
     }
 
+    /**
+     * Map the specified file into memory and index its lines,
+     * without creating a String for every line.
+     * @param file an existing file
+     * @return a mapped directory, or null if the file cannot be mapped.
+     */
+    private static MappedDirectory mapFile(File file) {
+
+        try {
+            return MappedDirectory.load(file);
+        } catch (IOException e) {
+            System.out.println("Error mapping file");
+            active = false;
+        }
+
+        return null;
+    }
+
     /**
      * Do a linear search and display performance results.
      */
@@ -90,7 +114,7 @@ public class Application {
      */
     private static void testBubbleSortJumpSearch() {
 
-        List<String> directoryCopy = new ArrayList<>(directory);
+        Directory directoryCopy = directory.copy();
         List<String> found = Searcher.jumpSearch(directoryCopy, targets);
         System.out.printf("Found %d / %d entries. %n", found.size(), targets.size());
         System.out.println("Time taken: " + (getTime(Searcher.getTimer() + Sorter.getTimer())));
@@ -100,13 +124,35 @@ public class Application {
     }
 
     /**
-     * Do a quick sort + binary search
+     * Sort the directory once, then do every search method of a sorted directory
+     * and display performance results, including the probes (name comparisons)
+     * each method needs per lookup.
+     */
+    private static void testSortedSearchMethods() {
+
+        Directory directoryCopy = directory.copy();
+        Sorter.parallelMergeSort(directoryCopy);
+        System.out.println("Sorting time (parallel merge sort): " + getTime(Sorter.getTimer()));
+        System.out.println();
+
+        for (Searcher.Method method : Searcher.Method.values()) {
+            List<String> found = Searcher.sortedSearch(directoryCopy, targets, method);
+            System.out.printf("Found %d / %d entries. %n", found.size(), targets.size());
+            System.out.printf("Probes per lookup: %.1f%n", Searcher.getProbes() / (double) Math.max(1, targets.size()));
+            System.out.println("Searching time: " + getTime(Searcher.getTimer()));
+            System.out.println();
+        }
+    }
+
+    /**
+     * Do a sort + binary search with the specified sorting algorithm
      * and display performance results.
+     * @param algorithm a sorting algorithm
      */
-    private static void testQuickSortBinarySearch() {
+    private static void testSortBinarySearch(Sorter.Algorithm algorithm) {
 
-        List<String> directoryCopy = new ArrayList<>(directory);
-        List<String> found = Searcher.binarySearch(directoryCopy, targets);
+        Directory directoryCopy = directory.copy();
+        List<String> found = Searcher.binarySearch(directoryCopy, targets, algorithm);
         System.out.printf("Found %d / %d entries. %n", found.size(), targets.size());
         System.out.println("Time taken: " + (getTime(Searcher.getTimer() + Sorter.getTimer())));
         System.out.println("Sorting time: " + getTime(Sorter.getTimer()));
@@ -114,6 +160,57 @@ public class Application {
         System.out.println();
     }
 
+    /**
+     * Do a sort + batch search of all targets with the specified sorting algorithm
+     * and display performance results.
+     * @param algorithm a sorting algorithm
+     */
+    private static void testSortBatchSearch(Sorter.Algorithm algorithm) {
+
+        Directory directoryCopy = directory.copy();
+        List<String> found = Searcher.batchSearch(directoryCopy, targets, algorithm);
+        System.out.printf("Found %d / %d entries. %n", found.size(), targets.size());
+        System.out.println("Time taken: " + (getTime(Searcher.getTimer() + Sorter.getTimer())));
+        System.out.println("Sorting time: " + getTime(Sorter.getTimer()));
+        System.out.println("Searching time: " + getTime(Searcher.getTimer()));
+        System.out.println();
+    }
+
+    /**
+     * Do a quick sort + binary search over the mapped directory
+     * and display performance results.
+     */
+    private static void testMappedQuickSortBinarySearch() {
+
+        List<String> found = Searcher.binarySearch(mappedDirectory, targets);
+        System.out.printf("Found %d / %d entries. %n", found.size(), targets.size());
+        System.out.println("Time taken: " + (getTime(Searcher.getTimer() + Sorter.getTimer())));
+        System.out.println("Sorting time: " + getTime(Sorter.getTimer()));
+        System.out.println("Searching time: " + getTime(Searcher.getTimer()));
+        System.out.println();
+    }
+
+    /**
+     * Do a binary search over the sorted index file of the directory,
+     * which is only sorted and written if missing or outdated,
+     * and display performance results.
+     */
+    private static void testSortedIndexBinarySearch() {
+
+        List<String> found;
+        try {
+            found = Searcher.indexSearch(directoryFile, targets);
+        } catch (IOException e) {
+            System.out.println("Error reading index file");
+            return;
+        }
+        System.out.printf("Found %d / %d entries. %n", found.size(), targets.size());
+        System.out.println("Time taken: " + (getTime(Searcher.getTimer() + Sorter.getTimer())));
+        System.out.println("Loading/sorting time: " + getTime(Sorter.getTimer()));
+        System.out.println("Searching time: " + getTime(Searcher.getTimer()));
+        System.out.println();
+    }
+
     /**
      * Do a hash table and display performance results.
      */
@@ -127,6 +224,80 @@ public class Application {
         System.out.println();
     }
 
+    /**
+     * Do a substring search with a suffix array, matching the same
+     * entries as the linear search, and display performance results.
+     */
+    private static void testSuffixArraySubstringSearch() {
+
+        List<String> found = Searcher.substringSearch(directory, targets);
+        System.out.printf("Found %d / %d entries. %n", found.size(), targets.size());
+        System.out.println("Time taken: " + (getTime(Searcher.getTimer() + Sorter.getTimer())));
+        System.out.println("Creating time: " + getTime(Sorter.getTimer()));
+        System.out.println("Searching time: " + getTime(Searcher.getTimer()));
+        System.out.println();
+    }
+
+    /**
+     * Do a prefix search with a suffix array, for the first name of every target,
+     * and display performance results.
+     */
+    private static void testSuffixArrayPrefixSearch() {
+
+        List<String> prefixes = new ArrayList<>();
+        for (String target : targets) {
+            int space = target.indexOf(' ');
+            prefixes.add(space == -1 ? target : target.substring(0, space + 1));
+        }
+
+        List<String> found = Searcher.prefixSearch(directory, prefixes);
+        System.out.printf("Found %d entries for %d prefixes. %n", found.size(), prefixes.size());
+        System.out.println("Time taken: " + (getTime(Searcher.getTimer() + Sorter.getTimer())));
+        System.out.println("Creating time: " + getTime(Sorter.getTimer()));
+        System.out.println("Searching time: " + getTime(Searcher.getTimer()));
+        System.out.println();
+    }
+
+    /**
+     * Index the directory, apply the update log 'updates.txt' (if it exists)
+     * to both indexes incrementally, search again and display performance results.
+     */
+    private static void testIncrementalUpdates() {
+
+        File updatesFile = new File("updates.txt");
+        if (!updatesFile.isFile()) {
+            System.out.println("No update log 'updates.txt' found. Incremental updates are skipped.");
+            System.out.println();
+            return;
+        }
+
+        System.out.println("Start updating (live directory)...");
+        LiveDirectory live = Sorter.liveDirectory(directory);
+        long creatingTime = Sorter.getTimer();
+
+        int applied;
+        long timerStart = System.nanoTime();
+        try {
+            applied = live.apply(updatesFile);
+        } catch (IOException e) {
+            System.out.println("Error reading from file");
+            return;
+        }
+        long updatingTime = (System.nanoTime() - timerStart) / 1_000_000;
+
+        System.out.printf("Applied %d updates, %d merge(s) into the sorted base. %n", applied, live.getCompactions());
+        System.out.println("Creating time: " + getTime(creatingTime));
+        System.out.println("Updating time: " + getTime(updatingTime));
+        System.out.println();
+
+        for (boolean hashed : new boolean[] {false, true}) {
+            List<String> found = Searcher.liveSearch(live, targets, hashed);
+            System.out.printf("Found %d / %d entries. %n", found.size(), targets.size());
+            System.out.println("Searching time: " + getTime(Searcher.getTimer()));
+            System.out.println();
+        }
+    }
+
     /**
      * Converts specified time from milliseconds
      * to human readable format (minutes:seconds:ms)
@@ -156,8 +327,19 @@ public class Application {
         }
 
         testLinearSearch();
-//        testBubbleSortJumpSearch();  // needs improvement
-        testQuickSortBinarySearch();
+        if (directory.size() <= BUBBLE_SORT_LIMIT) {
+            testBubbleSortJumpSearch();
+        }
+        testSortedSearchMethods();
+        testSortBinarySearch(Sorter.Algorithm.QUICK);
+        testSortBinarySearch(Sorter.Algorithm.PARALLEL_QUICK);
+        testSortBinarySearch(Sorter.Algorithm.PARALLEL_MERGE);
+        testSortBatchSearch(Sorter.Algorithm.PARALLEL_MERGE);
+        testMappedQuickSortBinarySearch();
+        testSortedIndexBinarySearch();
         testHashTableHashSearch();
+        testSuffixArraySubstringSearch();
+        testSuffixArrayPrefixSearch();
+        testIncrementalUpdates();
     }
 }
@@ -0,0 +1,257 @@
+package phonebook;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Benchmarks every searching and sorting strategy over generated directories.
+ * Each strategy is warmed up first and then measured for a few iterations,
+ * where each iteration repeats the operation for a minimum amount of time.
+ * Preparing an operation (e.g. copying the directory before sorting it) is never measured.
+ * Reported are throughput, average time and allocation rate across all threads.
+ *
+ * Start with: Main --benchmark [--sizes 10000,100000] [--targets 1000] [--seed 42]
+ *                              [--warmup 2] [--iterations 5] [--time 500]
+ * The largest default size (10M entries) needs a heap of about 4GB.
+ */
+public class Benchmark {
+
+    private static final int LINEAR_LIMIT = 100_000;
+    private static final int BUBBLE_LIMIT = 10_000;
+
+    private static int[] sizes = {10_000, 100_000, 1_000_000, 10_000_000};
+    private static int targetCount = 1_000;
+    private static long seed = 42;
+    private static int warmupIterations = 2;
+    private static int iterations = 5;
+    private static long iterationTime = 500;
+
+    private static volatile long sink;
+
+    /**
+     * A benchmarked strategy. The supplier prepares the operation,
+     * and the returned operation is the part being measured.
+     */
+    private static class Case {
+
+        private final String name;
+        private final int maxSize;
+        private final Supplier<Supplier<?>> operation;
+
+        Case(String name, int maxSize, Supplier<Supplier<?>> operation) {
+            this.name = name;
+            this.maxSize = maxSize;
+            this.operation = operation;
+        }
+    }
+
+    /**
+     * Run this method to start the benchmark.
+     * @param args arguments passed from terminal.
+     */
+    public static void run(String[] args) {
+
+        parseArgs(args);
+
+        for (int size : sizes) {
+            DirectoryGenerator generator = new DirectoryGenerator(seed);
+            List<String> lines = generator.directory(size);
+            List<String> targets = generator.targets(lines, targetCount);
+            Directory directory = Directory.parse(lines);
+            lines = null;
+
+            System.out.printf("=== %d entries, %d targets, seed %d ===%n", size, targets.size(), seed);
+            System.out.printf("%-30s %14s %12s %12s %14s%n",
+                    "Strategy", "ops/s", "avg ms/op", "alloc MB/s", "alloc B/op");
+
+            for (Case c : cases(directory, targets)) {
+                if (size > c.maxSize) {
+                    System.out.printf("%-30s %14s%n", c.name, "skipped");
+                } else {
+                    measure(c);
+                }
+            }
+            System.out.println();
+        }
+    }
+
+    /**
+     * Parse arguments from terminal, keeping defaults for the missing ones.
+     * @param args arguments passed from terminal.
+     */
+    private static void parseArgs(String[] args) {
+
+        for (int i = 0; i < args.length - 1; i++) {
+            try {
+                switch (args[i]) {
+                    case "--sizes":
+                        String[] parts = args[i + 1].split(",");
+                        sizes = new int[parts.length];
+                        for (int k = 0; k < parts.length; k++) {
+                            sizes[k] = Integer.parseInt(parts[k].trim());
+                        }
+                        break;
+                    case "--targets":
+                        targetCount = Integer.parseInt(args[i + 1]);
+                        break;
+                    case "--seed":
+                        seed = Long.parseLong(args[i + 1]);
+                        break;
+                    case "--warmup":
+                        warmupIterations = Integer.parseInt(args[i + 1]);
+                        break;
+                    case "--iterations":
+                        iterations = Integer.parseInt(args[i + 1]);
+                        break;
+                    case "--time":
+                        iterationTime = Long.parseLong(args[i + 1]);
+                        break;
+                    default:
+                        break;
+                }
+            } catch (NumberFormatException e) {
+                System.out.printf("\"%s\" isn't a valid value for %s. It's skipped.%n", args[i + 1], args[i]);
+            }
+        }
+    }
+
+    /**
+     * List every strategy to be benchmarked over the specified data.
+     * @param directory a parsed, unsorted directory
+     * @param targets a list of targets
+     * @return a list of cases.
+     */
+    private static List<Case> cases(Directory directory, List<String> targets) {
+
+        Directory sorted = directory.copy();
+        Sorter.parallelMergeSort(sorted);
+        HashTable hashtable = Sorter.hash(directory);
+        SuffixIndex suffixIndex = Sorter.suffixIndex(directory);
+
+        List<Case> cases = new ArrayList<>();
+        cases.add(new Case("linear search", LINEAR_LIMIT,
+                () -> () -> Searcher.findLinear(directory, targets)));
+        cases.add(new Case("jump search", Integer.MAX_VALUE,
+                () -> () -> Searcher.findJump(sorted, targets)));
+        cases.add(new Case("exponential search", Integer.MAX_VALUE,
+                () -> () -> Searcher.findSorted(sorted, targets, Searcher.Method.EXPONENTIAL)));
+        cases.add(new Case("interpolation search", Integer.MAX_VALUE,
+                () -> () -> Searcher.findSorted(sorted, targets, Searcher.Method.INTERPOLATION)));
+        cases.add(new Case("binary search", Integer.MAX_VALUE,
+                () -> () -> Searcher.findBinary(sorted, targets)));
+        cases.add(new Case("batch search (merge join)", Integer.MAX_VALUE,
+                () -> () -> Searcher.findBatch(sorted, targets, true)));
+        cases.add(new Case("batch search (binary probes)", Integer.MAX_VALUE,
+                () -> () -> Searcher.findBatch(sorted, targets, false)));
+        cases.add(new Case("hash search", Integer.MAX_VALUE,
+                () -> () -> Searcher.findHashed(hashtable, targets)));
+        cases.add(new Case("substring search", Integer.MAX_VALUE,
+                () -> () -> Searcher.findSubstrings(suffixIndex, targets)));
+        cases.add(new Case("hash table build", Integer.MAX_VALUE,
+                () -> () -> Sorter.hash(directory)));
+        cases.add(new Case("suffix array build", Integer.MAX_VALUE,
+                () -> () -> Sorter.suffixIndex(directory)));
+        cases.add(new Case("bubble sort", BUBBLE_LIMIT, () -> {
+            Directory copy = directory.copy();
+            return () -> {
+                Sorter.bubbleSort(copy);
+                return copy;
+            };
+        }));
+        for (Sorter.Algorithm algorithm : Sorter.Algorithm.values()) {
+            cases.add(new Case(algorithm.getDescription(), Integer.MAX_VALUE, () -> {
+                Directory copy = directory.copy();
+                return () -> {
+                    Sorter.sort(copy, algorithm);
+                    return copy;
+                };
+            }));
+        }
+        return cases;
+    }
+
+    /**
+     * Warm up and measure the specified case, then display its results.
+     * @param c a benchmarked strategy
+     */
+    private static void measure(Case c) {
+
+        for (int i = 0; i < warmupIterations; i++) {
+            iterate(c);
+        }
+
+        long ops = 0;
+        long nanos = 0;
+        long bytes = 0;
+        for (int i = 0; i < iterations; i++) {
+            long[] result = iterate(c);
+            ops += result[0];
+            nanos += result[1];
+            bytes += result[2];
+        }
+
+        double seconds = nanos / 1e9;
+        System.out.printf("%-30s %14.3f %12.3f %12.1f %14s%n",
+                c.name,
+                ops / seconds,
+                nanos / 1e6 / ops,
+                bytes < 0 ? Double.NaN : bytes / 1e6 / seconds,
+                bytes < 0 ? "n/a" : String.valueOf(bytes / ops));
+    }
+
+    /**
+     * Repeat the specified case until iterationTime has been measured.
+     * @param c a benchmarked strategy
+     * @return the number of operations, measured nanoseconds and allocated bytes (-1 if unknown).
+     */
+    private static long[] iterate(Case c) {
+
+        long ops = 0;
+        long nanos = 0;
+        long bytes = 0;
+
+        while (nanos < iterationTime * 1_000_000) {
+            Supplier<?> operation = c.operation.get();
+
+            long bytesStart = allocatedBytes();
+            long timerStart = System.nanoTime();
+            Object result = operation.get();
+            long timerStop = System.nanoTime();
+            long bytesStop = allocatedBytes();
+
+            sink += System.identityHashCode(result);
+            ops++;
+            nanos += timerStop - timerStart;
+            bytes = bytes < 0 || bytesStart < 0 ? -1 : bytes + bytesStop - bytesStart;
+        }
+
+        return new long[] {ops, nanos, bytes};
+    }
+
+    /**
+     * Sum the bytes allocated so far by all live threads,
+     * so that work done on the fork/join pool is counted as well.
+     * @return a number of bytes, or -1 if the JVM cannot tell.
+     */
+    private static long allocatedBytes() {
+
+        if (!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean)) {
+            return -1;
+        }
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        if (!threads.isThreadAllocatedMemorySupported() || !threads.isThreadAllocatedMemoryEnabled()) {
+            return -1;
+        }
+
+        long total = 0;
+        for (long bytes : threads.getThreadAllocatedBytes(threads.getAllThreadIds())) {
+            if (bytes > 0) {
+                total += bytes;
+            }
+        }
+        return total;
+    }
+}
@@ -0,0 +1,207 @@
+package phonebook;
+
+import java.util.List;
+
+/**
+ * A phonebook directory parsed once into a name column and a phone column.
+ * Every line "phone name" is split a single time when the directory is created,
+ * so sorting and searching never split or allocate while comparing names.
+ * Besides the names, a key packing the first four characters of each name is kept,
+ * which settles most comparisons with a single primitive compare.
+ */
+public class Directory {
+
+    private final String[] names;
+    private final String[] phones;
+    private final long[] keys;
+
+    private Directory(String[] names, String[] phones, long[] keys) {
+        this.names = names;
+        this.phones = phones;
+        this.keys = keys;
+    }
+
+    /**
+     * Parse the specified lines into a new directory.
+     * The name of each line follows its first space. A line without a space is all name.
+     * @param lines a list of phonebook entries
+     * @return a parsed directory.
+     */
+    public static Directory parse(List<String> lines) {
+
+        int size = lines.size();
+        String[] names = new String[size];
+        String[] phones = new String[size];
+        long[] keys = new long[size];
+
+        for (int i = 0; i < size; i++) {
+            String line = lines.get(i);
+            int space = line.indexOf(' ');
+            names[i] = line.substring(space + 1);
+            phones[i] = space == -1 ? "" : line.substring(0, space);
+            keys[i] = key(names[i]);
+        }
+
+        return new Directory(names, phones, keys);
+    }
+
+    /**
+     * Parse the lines of the specified mapped directory into a new directory,
+     * decoding each name and phone straight from the mapped bytes,
+     * so the file is never held as a list of whole lines as well.
+     * @param lines a mapped phonebook directory
+     * @return a parsed directory.
+     */
+    public static Directory parse(MappedDirectory lines) {
+
+        int size = lines.size();
+        String[] names = new String[size];
+        String[] phones = new String[size];
+
+        for (int i = 0; i < size; i++) {
+            names[i] = lines.getName(i);
+            phones[i] = lines.getPhone(i);
+        }
+
+        return of(names, phones);
+    }
+
+    /**
+     * Create a directory straight from its columns.
+     * @param names the name of every entry
+     * @param phones the phone of every entry
+     * @return a directory over the specified arrays.
+     */
+    static Directory of(String[] names, String[] phones) {
+
+        long[] keys = new long[names.length];
+        for (int i = 0; i < names.length; i++) {
+            keys[i] = key(names[i]);
+        }
+        return new Directory(names, phones, keys);
+    }
+
+    /**
+     * Pack the first four characters of the specified name in a long,
+     * so that comparing two keys unsigned agrees with comparing the names.
+     * @param name a name
+     * @return the name's key.
+     */
+    static long key(String name) {
+
+        long key = 0;
+        for (int i = 0; i < 4; i++) {
+            key <<= 16;
+            if (i < name.length()) {
+                key |= name.charAt(i);
+            }
+        }
+        return key;
+    }
+
+    /**
+     * Create a copy of this directory that can be sorted independently.
+     * Only the column arrays are copied, names and phones are shared.
+     * @return a new directory with the same entries.
+     */
+    public Directory copy() {
+        return new Directory(names.clone(), phones.clone(), keys.clone());
+    }
+
+    /**
+     * Getter
+     * @return the number of entries.
+     */
+    public int size() {
+        return names.length;
+    }
+
+    /**
+     * Getter
+     * @param i an entry index
+     * @return the name of the i-th entry.
+     */
+    public String getName(int i) {
+        return names[i];
+    }
+
+    /**
+     * Getter
+     * @param i an entry index
+     * @return the phone of the i-th entry.
+     */
+    public String getPhone(int i) {
+        return phones[i];
+    }
+
+    /**
+     * Getter
+     * @param i an entry index
+     * @return the key of the i-th entry's name.
+     */
+    long getKey(int i) {
+        return keys[i];
+    }
+
+    /**
+     * Compare the names of the specified entries.
+     * @param i an entry index
+     * @param j another entry index
+     * @return a negative, zero or positive number as in Comparable.
+     */
+    public int compareNames(int i, int j) {
+
+        int comparison = Long.compareUnsigned(keys[i], keys[j]);
+        return comparison != 0 ? comparison : names[i].compareTo(names[j]);
+    }
+
+    /**
+     * Compare the name of the specified entry with the specified name.
+     * @param i an entry index
+     * @param name a name
+     * @param key the key of that name
+     * @return a negative, zero or positive number as in Comparable.
+     */
+    public int compareName(int i, String name, long key) {
+
+        int comparison = Long.compareUnsigned(keys[i], key);
+        return comparison != 0 ? comparison : names[i].compareTo(name);
+    }
+
+    /**
+     * Swap the entries at the specified indexes.
+     * @param i an index to be swapped with j.
+     * @param j an index to be swapped with i.
+     */
+    public void swap(int i, int j) {
+
+        String tempName = names[i];
+        names[i] = names[j];
+        names[j] = tempName;
+
+        String tempPhone = phones[i];
+        phones[i] = phones[j];
+        phones[j] = tempPhone;
+
+        long tempKey = keys[i];
+        keys[i] = keys[j];
+        keys[j] = tempKey;
+    }
+
+    /**
+     * Rearrange the entries in the specified order.
+     * @param order entry indexes, where order[i] is the entry to be moved to i
+     */
+    void reorder(int[] order) {
+
+        String[] oldNames = names.clone();
+        String[] oldPhones = phones.clone();
+        long[] oldKeys = keys.clone();
+
+        for (int i = 0; i < order.length; i++) {
+            names[i] = oldNames[order[i]];
+            phones[i] = oldPhones[order[i]];
+            keys[i] = oldKeys[order[i]];
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package phonebook;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates phonebook directories and targets of any size.
+ * The same seed always produces the same data, so benchmark runs are reproducible.
+ */
+public class DirectoryGenerator {
+
+    private static final String[] SYLLABLES = {
+        "an", "be", "ca", "de", "el", "fa", "go", "ha", "in", "jo", "ka", "li", "ma",
+        "ne", "or", "pa", "qu", "ri", "sa", "te", "ul", "va", "we", "xa", "yo", "ze"
+    };
+
+    private final Random random;
+
+    public DirectoryGenerator(long seed) {
+        this.random = new Random(seed);
+    }
+
+    /**
+     * Generate directory lines in the "phone name" format.
+     * @param size number of lines
+     * @return a list of phonebook entries.
+     */
+    public List<String> directory(int size) {
+
+        List<String> lines = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            lines.add(String.format("%07d %s", random.nextInt(10_000_000), name()));
+        }
+        return lines;
+    }
+
+    /**
+     * Pick targets from the specified directory lines,
+     * half of them existing names and half of them (most likely) missing ones.
+     * @param lines directory lines as generated by directory(int)
+     * @param size number of targets
+     * @return a list of targets.
+     */
+    public List<String> targets(List<String> lines, int size) {
+
+        List<String> targets = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            if (i % 2 == 0 && !lines.isEmpty()) {
+                String line = lines.get(random.nextInt(lines.size()));
+                targets.add(line.substring(line.indexOf(' ') + 1));
+            } else {
+                targets.add(name() + "x");
+            }
+        }
+        return targets;
+    }
+
+    /**
+     * Generate a random "First Last" name.
+     * @return a name.
+     */
+    private String name() {
+        return word(2 + random.nextInt(2)) + " " + word(2 + random.nextInt(3));
+    }
+
+    private String word(int syllables) {
+
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i < syllables; i++) {
+            word.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+        }
+        word.setCharAt(0, Character.toUpperCase(word.charAt(0)));
+        return word.toString();
+    }
+}
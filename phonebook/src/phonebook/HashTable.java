@@ -1,79 +1,235 @@
 package phonebook;
 
+import java.util.Arrays;
+
 /**
  * Personal implementation of a HashMap.
+ * Keys are placed by their hash code with linear probing (open addressing).
+ * The probe table holds only primitives: the hash of each key and the index
+ * of its entry, while keys and values are kept in insertion order.
+ * The table doubles whenever it gets more than 3/4 full,
+ * so lookups stay O(1) on average.
  */
 public class HashTable {
 
-    private static class TableEntry {
+    private static final double LOAD_FACTOR = 0.75;
+    private static final int MIN_CAPACITY = 16;
 
-        private final String key;
-        private final String value;
+    private int[] hashes;
+    private int[] slots;
+    private int mask;
+    private int threshold;
 
-        public TableEntry(String key, String value) {
-            this.key = key;
-            this.value = value;
-        }
+    private String[] keys;
+    private String[] values;
+    private int count;
+    private int removed;
 
-        public String getKey() {
-            return key;
-        }
+    public HashTable(int size) {
 
-        public String getValue() {
-            return value;
+        int capacity = MIN_CAPACITY;
+        while (capacity * LOAD_FACTOR < size) {
+            capacity <<= 1;
         }
+        allocate(capacity);
+        keys = new String[Math.max(size, 1)];
+        values = new String[Math.max(size, 1)];
+    }
 
+    /**
+     * Create an empty probe table of the specified capacity.
+     * @param capacity a power of two
+     */
+    private void allocate(int capacity) {
+
+        hashes = new int[capacity];
+        slots = new int[capacity];
+        mask = capacity - 1;
+        threshold = (int) (capacity * LOAD_FACTOR);
     }
 
-    private final int size;
-    private TableEntry[] table;
-    private int idx = 0;
+    /**
+     * Spread the bits of the key's hash code, so that keys
+     * which differ only in their high bits do not collide.
+     * @param key a key
+     * @return a hash which is never 0, since 0 marks an empty slot.
+     */
+    private static int hash(String key) {
 
-    public HashTable(int size) {
-        this.size = size;
-        table = new TableEntry[size];
+        int h = key.hashCode() * 0x9E3779B9;
+        h ^= h >>> 16;
+        return h == 0 ? 1 : h;
     }
 
-    private int findKeyIndex(String key) {
+    /**
+     * Find the slot of the specified key,
+     * or the empty slot where it would be placed.
+     * @param key a key
+     * @param hash the key's hash
+     * @return a slot index.
+     */
+    private int findSlot(String key, int hash) {
 
-        int hash = idx % size;
-        while (!(table[hash] == null || table[hash].getKey().equals(key))) {
-            hash = (hash + 1) % size;
-            if (hash == idx % size) {
-                return -1;
+        int i = hash & mask;
+        while (hashes[i] != 0) {
+            if (hashes[i] == hash && keys[slots[i]].equals(key)) {
+                return i;
             }
+            i = (i + 1) & mask;
         }
-        idx++;
-        return hash;
+        return i;
     }
 
+    /**
+     * Double the probe table and place every entry again,
+     * reusing the stored hashes instead of hashing the keys.
+     */
+    private void resize() {
+
+        int[] oldHashes = hashes;
+        int[] oldSlots = slots;
+        allocate(oldHashes.length << 1);
+
+        for (int k = 0; k < oldHashes.length; k++) {
+            if (oldHashes[k] != 0) {
+                int i = oldHashes[k] & mask;
+                while (hashes[i] != 0) {
+                    i = (i + 1) & mask;
+                }
+                hashes[i] = oldHashes[k];
+                slots[i] = oldSlots[k];
+            }
+        }
+    }
+
+    /**
+     * Map the specified key to the specified value,
+     * replacing the value of an existing key.
+     * @param key a key
+     * @param value a value
+     * @return true once the entry is stored.
+     */
     public boolean put(String key, String value) {
 
-        int i = findKeyIndex(key);
-        if (i == -1) {
+        int hash = hash(key);
+        int i = findSlot(key, hash);
+        if (hashes[i] != 0) {
+            values[slots[i]] = value;
+            return true;
+        }
+
+        if (count == keys.length) {
+            if (removed > count / 4) {
+                compact();
+                i = findSlot(key, hash);
+            } else {
+                keys = Arrays.copyOf(keys, count << 1);
+                values = Arrays.copyOf(values, count << 1);
+            }
+        }
+        keys[count] = key;
+        values[count] = value;
+        hashes[i] = hash;
+        slots[i] = count;
+        count++;
+
+        if (count - removed > threshold) {
+            resize();
+        }
+        return true;
+    }
+
+    /**
+     * Remove the specified key and its value.
+     * The entries following it in the same probe run are shifted back,
+     * so no tombstones are needed and lookups never slow down.
+     * @param key a key
+     * @return true if the key was found and removed, else false.
+     */
+    public boolean remove(String key) {
+
+        int i = findSlot(key, hash(key));
+        if (hashes[i] == 0) {
             return false;
         }
-        table[i] = new TableEntry(key, value);
+
+        keys[slots[i]] = null;
+        values[slots[i]] = null;
+        removed++;
+
+        int k = i;
+        while (true) {
+            k = (k + 1) & mask;
+            if (hashes[k] == 0) {
+                break;
+            }
+            // an entry may move back to i unless its home slot lies cyclically in (i, k]
+            int home = hashes[k] & mask;
+            boolean stays = i <= k ? (i < home && home <= k) : (i < home || home <= k);
+            if (!stays) {
+                hashes[i] = hashes[k];
+                slots[i] = slots[k];
+                i = k;
+            }
+        }
+        hashes[i] = 0;
+        slots[i] = 0;
         return true;
     }
 
-    public String get(String key) {
+    /**
+     * Drop the holes left by removed entries and place the rest again.
+     */
+    private void compact() {
+
+        String[] oldKeys = keys;
+        String[] oldValues = values;
+        int oldCount = count;
 
-        int i = findKeyIndex(key);
-        if (i == -1 || table[i] == null) {
-            return null;
+        keys = new String[oldKeys.length];
+        values = new String[oldValues.length];
+        count = 0;
+        removed = 0;
+        Arrays.fill(hashes, 0);
+
+        for (int k = 0; k < oldCount; k++) {
+            if (oldKeys[k] != null) {
+                int hash = hash(oldKeys[k]);
+                int i = findSlot(oldKeys[k], hash);
+                keys[count] = oldKeys[k];
+                values[count] = oldValues[k];
+                hashes[i] = hash;
+                slots[i] = count;
+                count++;
+            }
         }
-        return table[i].getValue();
     }
 
+    /**
+     * Getter
+     * @param key a key
+     * @return the value mapped to the key, or null if there is none.
+     */
+    public String get(String key) {
+
+        int hash = hash(key);
+        int i = findSlot(key, hash);
+        return hashes[i] == 0 ? null : values[slots[i]];
+    }
 
+    /**
+     * Getter
+     * @return the number of entries.
+     */
     public int length() {
 
-        return size;
+        return count - removed;
     }
 
     public boolean containsKey(String key) {
-        return findKeyIndex(key) != -1;
+
+        int hash = hash(key);
+        return hashes[findSlot(key, hash)] != 0;
     }
 
     @Override
@@ -81,16 +237,16 @@ public class HashTable {
 
         StringBuilder tableStringBuilder = new StringBuilder();
 
-        for (int i = 0; i < table.length; i++) {
-            if (table[i] == null) {
+        for (int i = 0; i < hashes.length; i++) {
+            if (hashes[i] == 0) {
                 tableStringBuilder.append("null");
             } else {
-                tableStringBuilder.append(table[i].getValue())
+                tableStringBuilder.append(values[slots[i]])
                                     .append(" ")
-                                    .append(table[i].getKey());
+                                    .append(keys[slots[i]]);
             }
 
-            if (i < table.length - 1) {
+            if (i < hashes.length - 1) {
                 tableStringBuilder.append("\n");
             }
         }
@@ -0,0 +1,187 @@
+package phonebook;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * A phonebook directory which keeps changing after it has been indexed.
+ * Updates are applied to both indexes right away, so searches see them immediately:
+ *     the hash index (HashTable) is updated in place,
+ *     the sorted index keeps a sorted base directory plus a small sorted memtable
+ *     of recent changes, where a deleted name is marked with a tombstone.
+ * Once the memtable grows past a fraction of the base, both are merged
+ * into a new sorted base in one linear pass (like an LSM tree), instead of re-sorting.
+ *
+ * An update log has one update per line:
+ *     "+ phone name" adds a name or replaces its phone,
+ *     "- name" deletes a name.
+ */
+public class LiveDirectory {
+
+    private static final String TOMBSTONE = new String("");
+    private static final int MIN_MEMTABLE_SIZE = 1024;
+
+    private Directory base;
+    private final HashTable hashtable;
+    private final TreeMap<String, String> memtable;
+    private int compactions;
+
+    /**
+     * Wrap the specified indexes of the same directory.
+     * @param sorted a directory sorted by name
+     * @param hashtable a hash table of the same directory
+     */
+    public LiveDirectory(Directory sorted, HashTable hashtable) {
+        this.base = sorted;
+        this.hashtable = hashtable;
+        this.memtable = new TreeMap<>();
+    }
+
+    /**
+     * Add the specified name, or replace its phone if it exists.
+     * @param name a name
+     * @param phone a phone
+     */
+    public void put(String name, String phone) {
+
+        hashtable.put(name, phone);
+        memtable.put(name, phone);
+        compactIfNeeded();
+    }
+
+    /**
+     * Delete the specified name.
+     * @param name a name
+     */
+    public void remove(String name) {
+
+        hashtable.remove(name);
+        memtable.put(name, TOMBSTONE);
+        compactIfNeeded();
+    }
+
+    /**
+     * Apply a single line of an update log.
+     * @param update "+ phone name" or "- name"
+     * @return true if the update was valid, else false.
+     */
+    public boolean apply(String update) {
+
+        if (update.startsWith("+ ")) {
+            int space = update.indexOf(' ', 2);
+            if (space != -1) {
+                put(update.substring(space + 1), update.substring(2, space));
+                return true;
+            }
+        } else if (update.startsWith("- ") && update.length() > 2) {
+            remove(update.substring(2));
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Apply every line of the specified update log.
+     * @param file an update log
+     * @return the number of updates applied.
+     * @throws IOException if the log cannot be read
+     */
+    public int apply(File file) throws IOException {
+
+        int applied = 0;
+        try (BufferedReader br = new BufferedReader(new FileReader(file))) {
+            String line = br.readLine();
+            while (line != null) {
+                if (apply(line)) {
+                    applied++;
+                } else if (!line.isEmpty()) {
+                    System.out.printf("\"%s\" isn't a valid update. It's skipped.%n", line);
+                }
+                line = br.readLine();
+            }
+        }
+        return applied;
+    }
+
+    /**
+     * Getter. Looks the name up in the hash index.
+     * @param name a name
+     * @return the phone of the name, or null if there is none.
+     */
+    public String get(String name) {
+        return hashtable.get(name);
+    }
+
+    /**
+     * Getter. Looks the name up in the sorted index:
+     * first among the recent changes, then in the sorted base.
+     * @param name a name
+     * @return the phone of the name, or null if there is none.
+     */
+    public String getSorted(String name) {
+
+        String phone = memtable.get(name);
+        if (phone != null) {
+            return phone == TOMBSTONE ? null : phone;
+        }
+
+        int i = Searcher.binaryProbe(base, name, Directory.key(name));
+        return i == -1 ? null : base.getPhone(i);
+    }
+
+    /**
+     * Getter
+     * @return how many times the memtable has been merged into the base.
+     */
+    public int getCompactions() {
+        return compactions;
+    }
+
+    private void compactIfNeeded() {
+
+        if (memtable.size() > Math.max(MIN_MEMTABLE_SIZE, base.size() / 16)) {
+            compact();
+        }
+    }
+
+    /**
+     * Merge the memtable into the sorted base. Base entries whose name was
+     * changed or deleted are dropped, the rest keep their order.
+     */
+    public void compact() {
+
+        String[] names = new String[base.size() + memtable.size()];
+        String[] phones = new String[names.length];
+        int size = 0;
+
+        int i = 0;
+        for (Map.Entry<String, String> change : memtable.entrySet()) {
+            String name = change.getKey();
+            long key = Directory.key(name);
+            while (i < base.size() && base.compareName(i, name, key) < 0) {
+                names[size] = base.getName(i);
+                phones[size++] = base.getPhone(i++);
+            }
+            while (i < base.size() && base.compareName(i, name, key) == 0) {
+                i++;
+            }
+            if (change.getValue() != TOMBSTONE) {
+                names[size] = name;
+                phones[size++] = change.getValue();
+            }
+        }
+        while (i < base.size()) {
+            names[size] = base.getName(i);
+            phones[size++] = base.getPhone(i++);
+        }
+
+        base = Directory.of(Arrays.copyOf(names, size), Arrays.copyOf(phones, size));
+        memtable.clear();
+        compactions++;
+    }
+}
@@ -4,6 +4,10 @@ public class Main {
 
     public static void main(String[] args) {
 
-        Application.run();
+        if (args.length > 0 && "--benchmark".equals(args[0])) {
+            Benchmark.run(args);
+        } else {
+            Application.run();
+        }
     }
 }
@@ -0,0 +1,301 @@
+package phonebook;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * A read-only phonebook directory mapped straight from its file into memory.
+ * Instead of keeping a String for every line, only the byte offset of each line
+ * is stored, so names are compared in place against the mapped bytes.
+ * Each line is expected as "phone name", where the name follows the first space.
+ */
+public class MappedDirectory {
+
+    private static final int SEGMENT_BITS = 30;
+    private static final long SEGMENT_SIZE = 1L << SEGMENT_BITS;
+    private static final long SEGMENT_MASK = SEGMENT_SIZE - 1;
+
+    private final MappedByteBuffer[] segments;
+    private final long length;
+    private long[] offsets;
+    private int size;
+
+    private MappedDirectory(MappedByteBuffer[] segments, long length) {
+        this.segments = segments;
+        this.length = length;
+        this.offsets = new long[16];
+        this.size = 0;
+    }
+
+    /**
+     * Map the specified file into memory and index the start of every line.
+     * Files bigger than 2GB are mapped in several segments.
+     * @param file an existing directory file
+     * @return a mapped directory
+     * @throws IOException if the file cannot be mapped
+     */
+    public static MappedDirectory load(File file) throws IOException {
+
+        MappedDirectory mapped = map(file);
+        mapped.indexLines();
+        return mapped;
+    }
+
+    /**
+     * Map the specified file into memory without indexing its lines.
+     * @param file an existing directory file
+     * @return a mapped directory with no line offsets yet
+     * @throws IOException if the file cannot be mapped
+     */
+    static MappedDirectory map(File file) throws IOException {
+
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+             FileChannel channel = raf.getChannel()) {
+
+            long length = channel.size();
+            int count = (int) ((length + SEGMENT_SIZE - 1) >>> SEGMENT_BITS);
+            MappedByteBuffer[] segments = new MappedByteBuffer[count];
+            for (int s = 0; s < count; s++) {
+                long start = (long) s << SEGMENT_BITS;
+                long segmentLength = Math.min(SEGMENT_SIZE, length - start);
+                segments[s] = channel.map(FileChannel.MapMode.READ_ONLY, start, segmentLength);
+            }
+            return new MappedDirectory(segments, length);
+        }
+    }
+
+    /**
+     * Scan the mapped bytes once and record the offset of each line.
+     */
+    private void indexLines() {
+
+        boolean lineStart = true;
+        for (int s = 0; s < segments.length; s++) {
+            MappedByteBuffer segment = segments[s];
+            long base = (long) s << SEGMENT_BITS;
+            int limit = segment.limit();
+            for (int i = 0; i < limit; i++) {
+                if (lineStart) {
+                    addOffset(base + i);
+                }
+                lineStart = segment.get(i) == '\n';
+            }
+        }
+    }
+
+    private void addOffset(long offset) {
+
+        if (size == offsets.length) {
+            offsets = Arrays.copyOf(offsets, size + (size >> 1));
+        }
+        offsets[size++] = offset;
+    }
+
+    /**
+     * Getter
+     * @return the number of lines in the directory.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Getter
+     * @return the length of the mapped file in bytes.
+     */
+    public long length() {
+        return length;
+    }
+
+    /**
+     * Getter
+     * @param i a line index
+     * @return the byte offset where the i-th line starts.
+     */
+    public long getOffset(int i) {
+        return offsets[i];
+    }
+
+    /**
+     * Swap the lines at the specified indexes.
+     * Only the offsets are swapped, the mapped bytes stay untouched.
+     * @param i an index to be swapped with j.
+     * @param j an index to be swapped with i.
+     */
+    public void swap(int i, int j) {
+
+        long temp = offsets[i];
+        offsets[i] = offsets[j];
+        offsets[j] = temp;
+    }
+
+    /**
+     * Read a single byte of the mapped file.
+     * @param position an absolute position in the file
+     * @return the byte at that position.
+     */
+    byte byteAt(long position) {
+        return segments[(int) (position >>> SEGMENT_BITS)].get((int) (position & SEGMENT_MASK));
+    }
+
+    /**
+     * Find where the line starting at the specified offset ends,
+     * ignoring the line-break and a possible carriage return.
+     * @param offset the start of a line
+     * @return the (exclusive) end of the line.
+     */
+    long lineEnd(long offset) {
+
+        long end = offset;
+        while (end < length && byteAt(end) != '\n') {
+            end++;
+        }
+        if (end > offset && byteAt(end - 1) == '\r') {
+            end--;
+        }
+        return end;
+    }
+
+    /**
+     * Find where the name of the line starting at the specified offset begins,
+     * that is right after the first space. A line without a space is all name.
+     * @param offset the start of a line
+     * @param end the end of the same line
+     * @return the start of the name.
+     */
+    long nameStart(long offset, long end) {
+
+        for (long p = offset; p < end; p++) {
+            if (byteAt(p) == ' ') {
+                return p + 1;
+            }
+        }
+        return offset;
+    }
+
+    /**
+     * Compare the names of the lines at the specified offsets, byte by byte.
+     * @param offset1 the start of a line
+     * @param offset2 the start of another line
+     * @return a negative, zero or positive number as in Comparable.
+     */
+    int compareNamesAt(long offset1, long offset2) {
+
+        long end1 = lineEnd(offset1);
+        long end2 = lineEnd(offset2);
+        long p1 = nameStart(offset1, end1);
+        long p2 = nameStart(offset2, end2);
+
+        while (p1 < end1 && p2 < end2) {
+            int diff = (byteAt(p1++) & 0xff) - (byteAt(p2++) & 0xff);
+            if (diff != 0) {
+                return diff;
+            }
+        }
+        return Long.compare(end1 - p1, end2 - p2);
+    }
+
+    /**
+     * Compare the name of the line at the specified offset with the specified name.
+     * @param offset the start of a line
+     * @param name a name encoded in UTF-8
+     * @return a negative, zero or positive number as in Comparable.
+     */
+    int compareNameAt(long offset, byte[] name) {
+
+        long end = lineEnd(offset);
+        long p = nameStart(offset, end);
+        int k = 0;
+
+        while (p < end && k < name.length) {
+            int diff = (byteAt(p++) & 0xff) - (name[k++] & 0xff);
+            if (diff != 0) {
+                return diff;
+            }
+        }
+        return Long.compare(end - p, name.length - k);
+    }
+
+    /**
+     * Compare the names of the specified lines.
+     * @param i a line index
+     * @param j another line index
+     * @return a negative, zero or positive number as in Comparable.
+     */
+    public int compareNames(int i, int j) {
+        return compareNamesAt(offsets[i], offsets[j]);
+    }
+
+    /**
+     * Compare the name of the specified line with the specified name.
+     * @param i a line index
+     * @param name a name encoded in UTF-8
+     * @return a negative, zero or positive number as in Comparable.
+     */
+    public int compareName(int i, byte[] name) {
+        return compareNameAt(offsets[i], name);
+    }
+
+    /**
+     * Decode the mapped bytes in the specified range.
+     * @param start the first position
+     * @param end the (exclusive) last position
+     * @return the range as text.
+     */
+    private String textAt(long start, long end) {
+
+        byte[] bytes = new byte[(int) (end - start)];
+        for (int k = 0; k < bytes.length; k++) {
+            bytes[k] = byteAt(start + k);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Decode the whole line at the specified offset.
+     * Only meant for results, never inside the hot loops.
+     * @param offset the start of a line
+     * @return the line as text.
+     */
+    String lineAt(long offset) {
+        return textAt(offset, lineEnd(offset));
+    }
+
+    /**
+     * Getter
+     * @param i a line index
+     * @return the i-th line as text.
+     */
+    public String getLine(int i) {
+        return lineAt(offsets[i]);
+    }
+
+    /**
+     * Getter
+     * @param i a line index
+     * @return the name of the i-th line, that is everything after its first space.
+     */
+    String getName(int i) {
+
+        long end = lineEnd(offsets[i]);
+        return textAt(nameStart(offsets[i], end), end);
+    }
+
+    /**
+     * Getter
+     * @param i a line index
+     * @return the phone of the i-th line, that is everything before its first space,
+     * or an empty string for a line without a space.
+     */
+    String getPhone(int i) {
+
+        long offset = offsets[i];
+        long nameStart = nameStart(offset, lineEnd(offset));
+        return nameStart == offset ? "" : textAt(offset, nameStart - 1);
+    }
+}
@@ -1,6 +1,10 @@
 package phonebook;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -9,12 +13,45 @@ import java.util.List;
  *
  *     Linear search
  *     Jump search (after bubble sort)
- *     Binary search (after quick sort)
+ *     Jump, exponential, interpolation and binary search (of an already sorted directory)
+ *     Binary search (after quick sort, parallel quick sort or parallel merge sort)
  *     Hash search (after creating hash table)
+ *     Batch search, merge join or binary probes (after sorting)
+ *     Substring and prefix search (after creating suffix array)
+ *     Sorted and hash search of a live directory (taking incremental updates)
+ *     Binary search over a memory-mapped directory file
+ *     Binary search over a persistent sorted index file
+ *
+ * The searching itself is done by the package-private find methods,
+ * which neither sort, print nor time, so that Benchmark can measure them alone.
  */
 public class Searcher {
 
+    /**
+     * Searching algorithms for an already sorted directory.
+     */
+    public enum Method {
+
+        JUMP("jump search"),
+        EXPONENTIAL("exponential search"),
+        INTERPOLATION("interpolation search"),
+        BINARY("binary search");
+
+        private final String description;
+
+        Method(String description) {
+            this.description = description;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+    }
+
+    private static final int RANDOM_ACCESS_COST = 8;
+
     private static long timer;
+    private static long probes;
 
     /**
      * Getter. Note: timer as set after latest search operation.
@@ -26,47 +63,66 @@ public class Searcher {
     }
 
     /**
-     * Search the unsorted specified directory list for entries of the specified targets list,
+     * Getter. Note: probes as counted during latest search of a sorted directory.
+     * @return the number of names compared with a target.
+     */
+    public static long getProbes() {
+
+        return probes;
+    }
+
+    /**
+     * Search the unsorted specified directory for entries of the specified targets list,
      * using the linear-search algorithm.
-     * @param directory a list of phonebook entries
+     * @param directory a parsed phonebook directory
      * @param targets a list of targets
      * @return a list of found entries
      */
-    public static List<String> linearSearch(List<String> directory, List<String> targets) {
-
-        List<String> entriesFound = new ArrayList<>();
+    public static List<String> linearSearch(Directory directory, List<String> targets) {
 
         System.out.println("Start searching (linear search)...");
 
-        long timerStart = System.currentTimeMillis();
+        long timerStart = System.nanoTime();
+
+        List<String> entriesFound = findLinear(directory, targets);
+
+        long timerStop = System.nanoTime();
+        timer = (timerStop - timerStart) / 1_000_000;
+
+        return entriesFound;
+    }
+
+    /**
+     * Helper of linearSearch().
+     * @param directory a parsed phonebook directory
+     * @param targets a list of targets
+     * @return a list of found entries
+     */
+    static List<String> findLinear(Directory directory, List<String> targets) {
+
+        List<String> entriesFound = new ArrayList<>();
 
         for (String name : targets) {
-            for (String line : directory) {
-                if (line.contains(name)) {
+            for (int i = 0; i < directory.size(); i++) {
+                if (directory.getName(i).contains(name)) {
                     entriesFound.add(name);
                     break;
-                    // String phoneNo = line.split(" ")[0];
                 }
             }
         }
 
-        long timerStop = System.currentTimeMillis();
-        timer = timerStop - timerStart;
-
         return entriesFound;
     }
 
     /**
-     * Search the unsorted specified directory list for entries of the specified targets list,
+     * Search the unsorted specified directory for entries of the specified targets list,
      * using the jump-search algorithm. Since jump-search requires a sorted dataset,
-     * the list is bubble-sorted first.
-     * @param directory a list of phonebook entries
+     * the directory is bubble-sorted first.
+     * @param directory a parsed phonebook directory
      * @param targets a list of targets
      * @return a list of found entries
      */
-    public static List<String> jumpSearch(List<String> directory, List<String> targets) {
-
-        List<String> entriesFound = new ArrayList<>();
+    public static List<String> jumpSearch(Directory directory, List<String> targets) {
 
         System.out.println("Start searching (bubble sort + jump search)...");
 
@@ -74,76 +130,635 @@ public class Searcher {
         Sorter.bubbleSort(directory);
 
         // then perform actual jumpSearch
-        long timerStart = System.currentTimeMillis();
+        long timerStart = System.nanoTime();
+
+        List<String> entriesFound = findJump(directory, targets);
+
+        long timerStop = System.nanoTime();
+        timer = (timerStop - timerStart) / 1_000_000;
+
+        return entriesFound;
+    }
+
+    /**
+     * Helper of jumpSearch().
+     * @param directory a sorted directory
+     * @param targets a list of targets
+     * @return a list of found entries
+     */
+    static List<String> findJump(Directory directory, List<String> targets) {
+
+        return findSorted(directory, targets, Method.JUMP);
+    }
+
+    /**
+     * Search the specified sorted directory for entries of the specified targets list,
+     * using the specified searching algorithm, and count the probes needed.
+     * @param directory a sorted directory
+     * @param targets a list of targets
+     * @param method a searching algorithm
+     * @return a list of found entries
+     */
+    public static List<String> sortedSearch(Directory directory, List<String> targets, Method method) {
+
+        System.out.printf("Start searching (%s)...%n", method.getDescription());
+
+        long timerStart = System.nanoTime();
+
+        List<String> entriesFound = findSorted(directory, targets, method);
+
+        long timerStop = System.nanoTime();
+        timer = (timerStop - timerStart) / 1_000_000;
+
+        return entriesFound;
+    }
+
+    /**
+     * Helper of sortedSearch().
+     * @param directory a sorted directory
+     * @param targets a list of targets
+     * @param method a searching algorithm
+     * @return a list of found entries
+     */
+    static List<String> findSorted(Directory directory, List<String> targets, Method method) {
+
+        List<String> entriesFound = new ArrayList<>();
+        probes = 0;
 
-        int jump = (int) Math.sqrt(directory.size());
         for (String name : targets) {
-            int right = 0;
-            int left = 0;
-            boolean found = false;
+            long key = Directory.key(name);
+            int index;
+            switch (method) {
+                case JUMP:
+                    index = jumpProbe(directory, name, key);
+                    break;
+                case EXPONENTIAL:
+                    index = exponentialProbe(directory, name, key);
+                    break;
+                case INTERPOLATION:
+                    index = interpolationProbe(directory, name, key);
+                    break;
+                case BINARY:
+                    index = binaryProbe(directory, name, key);
+                    break;
+                default:
+                    throw new IllegalStateException("Unexpected value: " + method);
+            }
+            if (index != -1) {
+                entriesFound.add(name);
+            }
+        }
+
+        return entriesFound;
+    }
+
+    /**
+     * Helper of findSorted(). Jumps ahead block by block (of sqrt(n) entries)
+     * until a block ends with a name not below the target,
+     * then scans that block from its start.
+     * @param directory a sorted directory
+     * @param name a name to look for
+     * @param key the key of that name
+     * @return the index of an entry with that name, or -1 if there is none.
+     */
+    private static int jumpProbe(Directory directory, String name, long key) {
+
+        int size = directory.size();
+        int jump = Math.max(1, (int) Math.sqrt(size));
+        int blockStart = 0;
+        int blockEnd = Math.min(jump, size) - 1;
+
+        while (blockEnd >= 0) {
+            probes++;
+            int comparison = directory.compareName(blockEnd, name, key);
+            if (comparison == 0) {
+                return blockEnd;
+            } else if (comparison > 0) {
+                break;
+            } else if (blockEnd == size - 1) {
+                return -1;
+            }
+            blockStart = blockEnd + 1;
+            blockEnd = Math.min(blockEnd + jump, size - 1);
+        }
+
+        for (int i = blockStart; i < blockEnd; i++) {
+            probes++;
+            int comparison = directory.compareName(i, name, key);
+            if (comparison == 0) {
+                return i;
+            } else if (comparison > 0) {
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Helper of findSorted(). Gallops over indexes 1, 2, 4, 8...
+     * until a name not below the target, then binary-searches the last gallop.
+     * @param directory a sorted directory
+     * @param name a name to look for
+     * @param key the key of that name
+     * @return the index of an entry with that name, or -1 if there is none.
+     */
+    private static int exponentialProbe(Directory directory, String name, long key) {
+
+        int index = gallop(directory, 0, name, key);
+        if (index < directory.size() && directory.compareName(index, name, key) == 0) {
+            probes++;
+            return index;
+        }
+        return -1;
+    }
+
+    /**
+     * Find the first entry, from the specified index on, whose name is not below the specified name.
+     * Gallops ahead from the index, doubling each step, then binary-searches the last step,
+     * so it takes O(log d) probes where d is the distance to the result.
+     * @param directory a sorted directory
+     * @param from index to start from
+     * @param name a name to look for
+     * @param key the key of that name
+     * @return an index, or the directory size if every name is below the specified one.
+     */
+    static int gallop(Directory directory, int from, String name, long key) {
+
+        int size = directory.size();
+        int left = from;
+        int step = 1;
+        int right = from;
+
+        while (right < size) {
+            probes++;
+            if (directory.compareName(right, name, key) >= 0) {
+                break;
+            }
+            left = right + 1;
+            right = step > size - from ? size : from + step;
+            step <<= 1;
+        }
+
+        // the result lies in [left, right]
+        right = Math.min(right, size);
+        while (left < right) {
+            int mid = left + (right - left) / 2;
+            probes++;
+            if (directory.compareName(mid, name, key) < 0) {
+                left = mid + 1;
+            } else {
+                right = mid;
+            }
+        }
+        return left;
+    }
+
+    /**
+     * Helper of findSorted(). Guesses where the target lies between the keys
+     * of the current bounds, like looking up a word in a paper dictionary.
+     * Whenever a guess fails to halve the range, the next step is a plain
+     * binary split, so uneven key distributions cost at most twice as much as binary search.
+     * @param directory a sorted directory
+     * @param name a name to look for
+     * @param key the key of that name
+     * @return the index of an entry with that name, or -1 if there is none.
+     */
+    private static int interpolationProbe(Directory directory, String name, long key) {
+
+        int left = 0;
+        int right = directory.size() - 1;
+        boolean bisect = false;
+
+        while (left <= right) {
+
+            long leftKey = directory.getKey(left);
+            long rightKey = directory.getKey(right);
+            if (Long.compareUnsigned(key, leftKey) < 0 || Long.compareUnsigned(key, rightKey) > 0) {
+                return -1;
+            }
+
+            int mid;
+            if (bisect || leftKey == rightKey) {
+                mid = left + (right - left) / 2;
+            } else {
+                double fraction = unsignedToDouble(key - leftKey) / unsignedToDouble(rightKey - leftKey);
+                mid = left + (int) (fraction * (right - left));
+                mid = Math.max(left, Math.min(right, mid));
+            }
+
+            probes++;
+            int comparison = directory.compareName(mid, name, key);
+            int range = right - left;
+            if (comparison == 0) {
+                return mid;
+            } else if (comparison > 0) {
+                right = mid - 1;
+            } else {
+                left = mid + 1;
+            }
+            bisect = right - left > range / 2;
+        }
+        return -1;
+    }
+
+    private static double unsignedToDouble(long value) {
+        return (double) (value >>> 1) * 2.0 + (value & 1);
+    }
+
+    /**
+     * Search the unsorted specified directory for entries of the specified targets list,
+     * using the binary-search algorithm. Since binary-search requires a sorted dataset,
+     * the directory is quick-sorted first.
+     * @param directory a parsed phonebook directory
+     * @param targets a list of targets
+     * @return a list of found entries
+     */
+    public static List<String> binarySearch(Directory directory, List<String> targets) {
+
+        return binarySearch(directory, targets, Sorter.Algorithm.QUICK);
+    }
+
+    /**
+     * Search the unsorted specified directory for entries of the specified targets list,
+     * using the binary-search algorithm. Since binary-search requires a sorted dataset,
+     * the directory is sorted first with the specified algorithm.
+     * @param directory a parsed phonebook directory
+     * @param targets a list of targets
+     * @param algorithm a sorting algorithm
+     * @return a list of found entries
+     */
+    public static List<String> binarySearch(Directory directory, List<String> targets, Sorter.Algorithm algorithm) {
+
+        System.out.printf("Start searching (%s + binary search)...%n", algorithm.getDescription());
+
+        // first sort directory
+        Sorter.sort(directory, algorithm);
+
+        // then perform actual binarySearch
+        long timerStart = System.nanoTime();
+
+        List<String> entriesFound = findBinary(directory, targets);
+
+        long timerStop = System.nanoTime();
+        timer = (timerStop - timerStart) / 1_000_000;
+
+        return entriesFound;
+    }
+
+    /**
+     * Helper of binarySearch().
+     * @param directory a sorted directory
+     * @param targets a list of targets
+     * @return a list of found entries
+     */
+    static List<String> findBinary(Directory directory, List<String> targets) {
+
+        List<String> entriesFound = new ArrayList<>();
+
+        for (String name : targets) {
+            if (binaryProbe(directory, name, Directory.key(name)) != -1) {
+                entriesFound.add(name);
+            }
+        }
+
+        return entriesFound;
+    }
+
+    /**
+     * Helper of findBinary(), findSorted() and findBatch().
+     * @param directory a sorted directory
+     * @param name a name to look for
+     * @param key the key of that name
+     * @return the index of an entry with that name, or -1 if there is none.
+     */
+    static int binaryProbe(Directory directory, String name, long key) {
+
+        int left = 0;
+        int right = directory.size() - 1;
+
+        while (left <= right) {
+
+            int mid = left + (right - left) / 2;
+            probes++;
+            int comparison = directory.compareName(mid, name, key);
+
+            if (comparison == 0) {
+                return mid;
+            } else if (comparison > 0) {
+                right = mid - 1;
+            } else {
+                left = mid + 1;
+            }
+        }
+        return -1;
+    }
 
-            while (right < directory.size() - 1 && !found) {
+    /**
+     * Search the unsorted specified directory for entries of the specified targets list,
+     * treating all targets as one batch. The directory is sorted first with the specified algorithm.
+     * When the targets are many compared to the directory, they are sorted as well and
+     * both sorted sequences are streamed together once (sort-merge join).
+     * Otherwise each target is binary-searched on its own.
+     * @param directory a parsed phonebook directory
+     * @param targets a list of targets
+     * @param algorithm a sorting algorithm
+     * @return a list of found entries
+     */
+    public static List<String> batchSearch(Directory directory, List<String> targets, Sorter.Algorithm algorithm) {
+
+        boolean mergeJoin = prefersMergeJoin(directory.size(), targets.size());
+        System.out.printf("Start searching (%s + batch search, %s)...%n",
+                algorithm.getDescription(),
+                mergeJoin ? "merge join" : "binary probes");
+
+        // first sort directory
+        Sorter.sort(directory, algorithm);
+
+        // then perform actual batch search
+        long timerStart = System.nanoTime();
+
+        List<String> entriesFound = findBatch(directory, targets, mergeJoin);
+
+        long timerStop = System.nanoTime();
+        timer = (timerStop - timerStart) / 1_000_000;
+
+        return entriesFound;
+    }
+
+    /**
+     * Helper of batchSearch().
+     * @param directory a sorted directory
+     * @param targets a list of targets
+     * @param mergeJoin true to merge-join, false to binary-search each target
+     * @return a list of found entries
+     */
+    static List<String> findBatch(Directory directory, List<String> targets, boolean mergeJoin) {
+
+        List<String> entriesFound = new ArrayList<>();
+
+        if (mergeJoin) {
+            String[] names = targets.toArray(new String[0]);
+            Arrays.sort(names);
+            long[] keys = new long[names.length];
+            for (int k = 0; k < names.length; k++) {
+                keys[k] = Directory.key(names[k]);
+            }
 
-                if (directory.get(right).contains(name)) {
+            int i = 0;
+            int k = 0;
+            while (i < directory.size() && k < names.length) {
+                int comparison = directory.compareName(i, names[k], keys[k]);
+                if (comparison < 0) {
+                    // gallop over the entries between two targets instead of stepping through them
+                    i = gallop(directory, i + 1, names[k], keys[k]);
+                } else if (comparison > 0) {
+                    k++;
+                } else {
+                    // keep i, the next target may be the same name
+                    entriesFound.add(names[k++]);
+                }
+            }
+        } else {
+            for (String name : targets) {
+                if (binaryProbe(directory, name, Directory.key(name)) != -1) {
                     entriesFound.add(name);
-                    break;
                 }
+            }
+        }
 
-                right = Math.min(right + jump, directory.size() - 1);
+        return entriesFound;
+    }
 
-                if (directory.get(right).compareTo(name) < 0) {
-                    for (int i = right - 1; i >= left; i--) {
-                        if (directory.get(i).contains(name)) {
-                            entriesFound.add(name);
-                            found = true;
-                            break;
-                        }
-                    }
-                }
+    /**
+     * Helper of batchSearch(). Compares the estimated cost of sorting the targets
+     * and streaming both sequences once, against a binary search per target.
+     * A binary search step jumps around memory while a merge step reads the next entry,
+     * so probe steps are weighted by RANDOM_ACCESS_COST.
+     * @param directorySize number of entries in the directory
+     * @param targetsSize number of targets
+     * @return true if the merge join is expected to be cheaper.
+     */
+    static boolean prefersMergeJoin(int directorySize, int targetsSize) {
+
+        double log2Targets = Math.log(Math.max(targetsSize, 2)) / Math.log(2);
+        double log2Directory = Math.log(Math.max(directorySize, 2)) / Math.log(2);
+        double mergeCost = targetsSize * log2Targets + directorySize + targetsSize;
+        double probeCost = targetsSize * log2Directory * RANDOM_ACCESS_COST;
+        return mergeCost < probeCost;
+    }
+
+    /**
+     * Search the unsorted specified directory for entries of the specified targets list,
+     * using hashes. A hash table is created first.
+     * @param directory a parsed phonebook directory
+     * @param targets a list of targets
+     * @return a list of found entries
+     */
+    public static List<String> hashSearch(Directory directory, List<String> targets) {
+
+        System.out.println("Start searching (hash table)...");
+
+        // first create a hash table
+        HashTable hashtable = Sorter.hash(directory);
+
+        // then perform actual hashSearch
+        long timerStart = System.nanoTime();
+
+        List<String> entriesFound = findHashed(hashtable, targets);
 
-                left = right;
+        long timerStop = System.nanoTime();
+        timer = (timerStop - timerStart) / 1_000_000;
+
+        return entriesFound;
+    }
+
+    /**
+     * Helper of hashSearch().
+     * @param hashtable a hash table of a directory
+     * @param targets a list of targets
+     * @return a list of found entries
+     */
+    static List<String> findHashed(HashTable hashtable, List<String> targets) {
+
+        List<String> entriesFound = new ArrayList<>();
+
+        for (String name : targets) {
+            String phone = hashtable.get(name);
+            if (phone != null) {
+                entriesFound.add(phone);
             }
         }
 
-        long timerStop = System.currentTimeMillis();
-        timer = timerStop - timerStart;
+        return entriesFound;
+    }
+
+    /**
+     * Search the live directory for entries of the specified targets list,
+     * seeing every update applied so far.
+     * @param live a directory taking incremental updates
+     * @param targets a list of targets
+     * @param hashed true to use the hash index, false to use the sorted index
+     * @return a list of found entries (their phones)
+     */
+    public static List<String> liveSearch(LiveDirectory live, List<String> targets, boolean hashed) {
+
+        System.out.printf("Start searching (live directory, %s)...%n", hashed ? "hash index" : "sorted index");
+
+        long timerStart = System.nanoTime();
+
+        List<String> entriesFound = new ArrayList<>();
+        for (String name : targets) {
+            String phone = hashed ? live.get(name) : live.getSorted(name);
+            if (phone != null) {
+                entriesFound.add(phone);
+            }
+        }
+
+        long timerStop = System.nanoTime();
+        timer = (timerStop - timerStart) / 1_000_000;
 
         return entriesFound;
     }
 
     /**
-     * Search the unsorted specified directory list for entries of the specified targets list,
-     * using the binary-search algorithm. Since binary-search requires a sorted dataset,
-     * the list is quick-sorted first.
-     * @param directory a list of phonebook entries
+     * Search the unsorted specified directory for entries containing each of the specified targets,
+     * just like the linear search does, but using a suffix array created first.
+     * @param directory a parsed phonebook directory
+     * @param targets a list of targets
+     * @return a list of found entries
+     */
+    public static List<String> substringSearch(Directory directory, List<String> targets) {
+
+        System.out.println("Start searching (suffix array + substring search)...");
+
+        // first create a suffix array
+        SuffixIndex index = Sorter.suffixIndex(directory);
+
+        // then perform actual substring search
+        long timerStart = System.nanoTime();
+
+        List<String> entriesFound = findSubstrings(index, targets);
+
+        long timerStop = System.nanoTime();
+        timer = (timerStop - timerStart) / 1_000_000;
+
+        return entriesFound;
+    }
+
+    /**
+     * Helper of substringSearch().
+     * @param index a suffix array of a directory
      * @param targets a list of targets
      * @return a list of found entries
      */
-    public static List<String> binarySearch(List<String> directory, List<String> targets) {
+    static List<String> findSubstrings(SuffixIndex index, List<String> targets) {
 
         List<String> entriesFound = new ArrayList<>();
 
-        System.out.println("Start searching (quick sort + binary search)...");
+        for (String name : targets) {
+            if (index.contains(name)) {
+                entriesFound.add(name);
+            }
+        }
+
+        return entriesFound;
+    }
 
-        // first quick-sort directory
+    /**
+     * Search the unsorted specified directory for all entries starting with each of the specified prefixes,
+     * using a suffix array created first. The prefixes are looked up as one batch.
+     * @param directory a parsed phonebook directory
+     * @param prefixes a list of prefixes
+     * @return a list of found entries, those of all prefixes together
+     */
+    public static List<String> prefixSearch(Directory directory, List<String> prefixes) {
+
+        System.out.println("Start searching (suffix array + prefix search)...");
+
+        // first create a suffix array
+        SuffixIndex index = Sorter.suffixIndex(directory);
+
+        // then perform actual prefix search
+        long timerStart = System.nanoTime();
+
+        List<String> entriesFound = findPrefixes(directory, index, prefixes);
+
+        long timerStop = System.nanoTime();
+        timer = (timerStop - timerStart) / 1_000_000;
+
+        return entriesFound;
+    }
+
+    /**
+     * Helper of prefixSearch().
+     * @param directory the directory the suffix array was created of
+     * @param index a suffix array of that directory
+     * @param prefixes a list of prefixes
+     * @return a list of found entries
+     */
+    static List<String> findPrefixes(Directory directory, SuffixIndex index, List<String> prefixes) {
+
+        List<String> entriesFound = new ArrayList<>();
+
+        for (int[] entries : index.prefixes(prefixes)) {
+            for (int entry : entries) {
+                entriesFound.add(directory.getName(entry));
+            }
+        }
+
+        return entriesFound;
+    }
+
+    /**
+     * Search the mapped directory for entries of the specified targets list,
+     * using the binary-search algorithm. The line offsets are quick-sorted first,
+     * and names are compared in place without creating a String per line.
+     * @param directory a mapped directory
+     * @param targets a list of targets
+     * @return a list of found entries
+     */
+    public static List<String> binarySearch(MappedDirectory directory, List<String> targets) {
+
+        System.out.println("Start searching (mapped quick sort + binary search)...");
+
+        // first quick-sort the line offsets
         Sorter.quickSort(directory);
 
         // then perform actual binarySearch
-        long timerStart = System.currentTimeMillis();
+        long timerStart = System.nanoTime();
+
+        List<String> entriesFound = findBinary(directory, targets);
+
+        long timerStop = System.nanoTime();
+        timer = (timerStop - timerStart) / 1_000_000;
+
+        return entriesFound;
+    }
+
+    /**
+     * Helper of binarySearch(MappedDirectory, List).
+     * @param directory a mapped directory with sorted line offsets
+     * @param targets a list of targets
+     * @return a list of found entries
+     */
+    static List<String> findBinary(MappedDirectory directory, List<String> targets) {
+
+        List<String> entriesFound = new ArrayList<>();
 
         for (String name : targets) {
+            byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
             int left = 0;
             int right = directory.size() - 1;
 
             while (left <= right) {
 
                 int mid = left + (right - left) / 2;
-                String nameDir = directory.get(mid).split(" ", 2)[1];
+                int comparison = directory.compareName(mid, nameBytes);
 
-                if (nameDir.equals(name)) {
+                if (comparison == 0) {
                     entriesFound.add(name);
                     break;
-                } else if (nameDir.compareTo(name) > 0) {
+                } else if (comparison > 0) {
                     right = mid - 1;
                 } else {
                     left = mid + 1;
@@ -151,40 +766,67 @@ public class Searcher {
             }
         }
 
-        long timerStop = System.currentTimeMillis();
-        timer = timerStop - timerStart;
+        return entriesFound;
+    }
+
+    /**
+     * Search the specified directory file for entries of the specified targets list,
+     * using the binary-search algorithm over its sorted index file.
+     * The index is only built (and the directory sorted) if it is missing or outdated.
+     * @param directoryFile an existing directory file
+     * @param targets a list of targets
+     * @return a list of found entries
+     * @throws IOException if the directory file cannot be read
+     */
+    public static List<String> indexSearch(File directoryFile, List<String> targets) throws IOException {
+
+        System.out.println("Start searching (sorted index file + binary search)...");
+
+        // first open or build the sorted index
+        SortedIndex index = Sorter.sortedIndex(directoryFile);
+
+        // then perform actual binarySearch
+        long timerStart = System.nanoTime();
+
+        List<String> entriesFound = findBinary(index, targets);
+
+        long timerStop = System.nanoTime();
+        timer = (timerStop - timerStart) / 1_000_000;
 
         return entriesFound;
     }
 
     /**
-     * Search the unsorted specified directory list for entries of the specified targets list,
-     * using hashes. A hash table is created first.
-     * @param directory a list of phonebook entries
+     * Helper of indexSearch().
+     * @param index a sorted index
      * @param targets a list of targets
      * @return a list of found entries
      */
-    public static List<String> hashSearch(List<String> directory, List<String> targets) {
+    static List<String> findBinary(SortedIndex index, List<String> targets) {
 
         List<String> entriesFound = new ArrayList<>();
 
-        System.out.println("Start searching (hash table)...");
+        for (String name : targets) {
+            byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+            int left = 0;
+            int right = index.size() - 1;
 
-        // first create a hash table
-        HashTable hashtable = Sorter.hash(directory);
+            while (left <= right) {
 
-        // then perform actual binarySearch
-        long timerStart = System.currentTimeMillis();
+                int mid = left + (right - left) / 2;
+                int comparison = index.compareName(mid, nameBytes);
 
-        for (String name : targets) {
-            if (hashtable.containsKey(name)) {
-                entriesFound.add(hashtable.get(name));
+                if (comparison == 0) {
+                    entriesFound.add(name);
+                    break;
+                } else if (comparison > 0) {
+                    right = mid - 1;
+                } else {
+                    left = mid + 1;
+                }
             }
         }
 
-        long timerStop = System.currentTimeMillis();
-        timer = timerStop - timerStart;
-
         return entriesFound;
     }
 }
@@ -0,0 +1,242 @@
+package phonebook;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.zip.CRC32C;
+
+/**
+ * A persistent index of a directory file: the offsets of its lines, sorted by name.
+ * The index is written next to the directory file (e.g. directory.txt.idx)
+ * and on the next run it is memory-mapped instead of sorting the directory again.
+ *
+ * File layout (big-endian):
+ *     int magic, int version,
+ *     long length and long last-modified time of the directory file,
+ *     int number of lines, int unused,
+ *     long CRC32C checksum of the offsets,
+ *     long offset of every line, sorted by name.
+ * An index is only used if the directory file still has the same length and time
+ * and the checksum matches, otherwise it is rebuilt.
+ */
+public class SortedIndex {
+
+    private static final int MAGIC = 0x50424958; // "PBIX"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 40;
+    private static final int CHUNK_BITS = 27;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private final MappedDirectory directory;
+    private final LongBuffer[] chunks;
+    private final int size;
+
+    private SortedIndex(MappedDirectory directory, LongBuffer[] chunks, int size) {
+        this.directory = directory;
+        this.chunks = chunks;
+        this.size = size;
+    }
+
+    /**
+     * Getter
+     * @param directoryFile a directory file
+     * @return the index file belonging to it.
+     */
+    public static File indexFileOf(File directoryFile) {
+        return new File(directoryFile.getPath() + ".idx");
+    }
+
+    /**
+     * Open the index of the specified directory file, if it exists and is still valid.
+     * @param directoryFile an existing directory file
+     * @return a sorted index, or null if it has to be rebuilt.
+     * @throws IOException if either file cannot be read
+     */
+    public static SortedIndex open(File directoryFile) throws IOException {
+
+        File indexFile = indexFileOf(directoryFile);
+        if (!indexFile.isFile() || indexFile.length() < HEADER_SIZE) {
+            return null;
+        }
+
+        try (RandomAccessFile raf = new RandomAccessFile(indexFile, "r");
+             FileChannel channel = raf.getChannel()) {
+
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+            int magic = header.getInt();
+            int version = header.getInt();
+            long sourceLength = header.getLong();
+            long sourceModified = header.getLong();
+            int size = header.getInt();
+            header.getInt();
+            long checksum = header.getLong();
+
+            if (magic != MAGIC
+                    || version != VERSION
+                    || sourceLength != directoryFile.length()
+                    || sourceModified != lastModified(directoryFile)
+                    || channel.size() != HEADER_SIZE + (long) size * Long.BYTES) {
+                return null;
+            }
+
+            CRC32C crc = new CRC32C();
+            LongBuffer[] chunks = new LongBuffer[(size + CHUNK_SIZE - 1) >>> CHUNK_BITS];
+            for (int c = 0; c < chunks.length; c++) {
+                long count = Math.min(CHUNK_SIZE, size - ((long) c << CHUNK_BITS));
+                MappedByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY,
+                        HEADER_SIZE + ((long) c << CHUNK_BITS) * Long.BYTES,
+                        count * Long.BYTES);
+                crc.update(bytes.duplicate());
+                chunks[c] = bytes.asLongBuffer();
+            }
+            if (crc.getValue() != checksum) {
+                return null;
+            }
+
+            return new SortedIndex(MappedDirectory.map(directoryFile), chunks, size);
+        }
+    }
+
+    /**
+     * Write the line offsets of the specified sorted directory as the index of its file.
+     * The index is written to a temporary file first and then moved in place,
+     * so an interrupted write never leaves a broken index behind.
+     * If the write or the move fails, the temporary file is deleted.
+     * @param directory a mapped directory, sorted by name
+     * @param directoryFile the file the directory was mapped from
+     * @return a sorted index backed by the directory's offsets.
+     * @throws IOException if the index cannot be written
+     */
+    public static SortedIndex write(MappedDirectory directory, File directoryFile) throws IOException {
+
+        File indexFile = indexFileOf(directoryFile);
+        File tempFile = new File(indexFile.getPath() + ".tmp");
+        int size = directory.size();
+
+        boolean moved = false;
+        try {
+            try (RandomAccessFile raf = new RandomAccessFile(tempFile, "rw");
+                 FileChannel channel = raf.getChannel()) {
+
+                raf.setLength(0);
+                CRC32C crc = new CRC32C();
+                ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+                channel.position(HEADER_SIZE);
+                for (int i = 0; i < size; i++) {
+                    if (!buffer.hasRemaining()) {
+                        flush(buffer, channel, crc);
+                    }
+                    buffer.putLong(directory.getOffset(i));
+                }
+                flush(buffer, channel, crc);
+
+                buffer.clear();
+                buffer.putInt(MAGIC)
+                        .putInt(VERSION)
+                        .putLong(directoryFile.length())
+                        .putLong(lastModified(directoryFile))
+                        .putInt(size)
+                        .putInt(0)
+                        .putLong(crc.getValue());
+                buffer.flip();
+                channel.position(0);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(false);
+            }
+
+            Files.move(tempFile.toPath(), indexFile.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            moved = true;
+        } finally {
+            if (!moved) {
+                // don't leave a half written index next to the directory
+                tempFile.delete();
+            }
+        }
+
+        return inMemory(directory);
+    }
+
+    /**
+     * Create an index straight from the offsets of the specified sorted directory,
+     * without any file behind it.
+     * @param directory a mapped directory, sorted by name
+     * @return a sorted index.
+     */
+    public static SortedIndex inMemory(MappedDirectory directory) {
+
+        int size = directory.size();
+        LongBuffer[] chunks = new LongBuffer[(size + CHUNK_SIZE - 1) >>> CHUNK_BITS];
+        for (int c = 0; c < chunks.length; c++) {
+            int start = c << CHUNK_BITS;
+            long[] offsets = new long[Math.min(CHUNK_SIZE, size - start)];
+            for (int i = 0; i < offsets.length; i++) {
+                offsets[i] = directory.getOffset(start + i);
+            }
+            chunks[c] = LongBuffer.wrap(offsets);
+        }
+        return new SortedIndex(directory, chunks, size);
+    }
+
+    /**
+     * Helper of write(). Write out the buffered offsets and add them to the checksum.
+     */
+    private static void flush(ByteBuffer buffer, FileChannel channel, CRC32C crc) throws IOException {
+
+        buffer.flip();
+        crc.update(buffer.duplicate());
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private static long lastModified(File file) throws IOException {
+        return Files.getLastModifiedTime(file.toPath()).toMillis();
+    }
+
+    /**
+     * Getter
+     * @return the number of lines in the index.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Getter
+     * @param i a position in name order
+     * @return the byte offset of the i-th line in name order.
+     */
+    public long getOffset(int i) {
+        return chunks[i >>> CHUNK_BITS].get(i & CHUNK_MASK);
+    }
+
+    /**
+     * Compare the name of the i-th line in name order with the specified name.
+     * @param i a position in name order
+     * @param name a name encoded in UTF-8
+     * @return a negative, zero or positive number as in Comparable.
+     */
+    public int compareName(int i, byte[] name) {
+        return directory.compareNameAt(getOffset(i), name);
+    }
+
+    /**
+     * Getter
+     * @param i a position in name order
+     * @return the i-th line in name order as text.
+     */
+    public String getLine(int i) {
+        return directory.lineAt(getOffset(i));
+    }
+}
@@ -1,6 +1,9 @@
 package phonebook;
 
-import java.util.List;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 /**
  * Implements a few popular sorting methods
@@ -9,9 +12,37 @@ import java.util.List;
  *     Bubble sort
  *     Quick sort
  *     Hash table (not exactly a sort).
+ *     Sorted and hashed base of a live directory taking incremental updates
+ *     Suffix array of all names (sorted suffixes, for substring and prefix queries)
+ *     Quick sort of a memory-mapped directory's line offsets
+ *     Sorted index file of a directory (sorted once, then reused)
+ *     Parallel quick sort and parallel merge sort (on a fork/join pool)
  */
 public class Sorter {
 
+    /**
+     * Sorting algorithms that may precede a binary search.
+     */
+    public enum Algorithm {
+
+        QUICK("quick sort"),
+        PARALLEL_QUICK("parallel quick sort"),
+        PARALLEL_MERGE("parallel merge sort");
+
+        private final String description;
+
+        Algorithm(String description) {
+            this.description = description;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+    }
+
+    private static final int INSERTION_SORT_THRESHOLD = 24;
+    private static final int SEQUENTIAL_THRESHOLD = 1 << 13;
+
     private static long timer;
 
     /**
@@ -24,117 +55,536 @@ public class Sorter {
     }
 
     /**
-     * Does not sort the directory list, but instead hashes
+     * Does not sort the directory, but instead hashes
      * each entry to be easily found in O(1).
-     * @param directory a list of phonebook entries
-     * @return a hashed map of the directory list's entries.
+     * @param directory a parsed phonebook directory
+     * @return a hashed map of the directory's entries.
      */
-    public static HashTable hash(List<String> directory) {
+    public static HashTable hash(Directory directory) {
 
-        long timerStart = System.currentTimeMillis();
+        long timerStart = System.nanoTime();
 
         HashTable hashtable = new HashTable(directory.size());
-        for (String line : directory) {
-            String[] parts = line.split(" ", 2);
-            hashtable.put(parts[1], parts[0]);
+        for (int i = 0; i < directory.size(); i++) {
+            hashtable.put(directory.getName(i), directory.getPhone(i));
         }
 
-        long timerStop = System.currentTimeMillis();
-        timer = timerStop - timerStart;
+        long timerStop = System.nanoTime();
+        timer = (timerStop - timerStart) / 1_000_000;
 
         return hashtable;
     }
 
     /**
-     * Sort the specified directory list in place,
+     * Sort a copy of the specified directory and hash it,
+     * as the base of a directory taking incremental updates.
+     * @param directory a parsed phonebook directory
+     * @return a live directory with a sorted and a hash index.
+     */
+    public static LiveDirectory liveDirectory(Directory directory) {
+
+        long timerStart = System.nanoTime();
+
+        Directory sorted = directory.copy();
+        ForkJoinPool.commonPool().invoke(new QuickSortTask(sorted, 0, sorted.size() - 1));
+        LiveDirectory live = new LiveDirectory(sorted, hash(sorted));
+
+        long timerStop = System.nanoTime();
+        timer = (timerStop - timerStart) / 1_000_000;
+
+        return live;
+    }
+
+    /**
+     * Does not sort the directory, but instead sorts all suffixes
+     * of its names into a suffix array for substring and prefix queries.
+     * @param directory a parsed phonebook directory
+     * @return a suffix array of the directory's names.
+     */
+    public static SuffixIndex suffixIndex(Directory directory) {
+
+        long timerStart = System.nanoTime();
+
+        SuffixIndex index = new SuffixIndex(directory);
+
+        long timerStop = System.nanoTime();
+        timer = (timerStop - timerStart) / 1_000_000;
+
+        return index;
+    }
+
+    /**
+     * Sort the specified directory in place,
      * using the bubble-sort algorithm.
-     * @param directory a list of phonebook entries
+     * @param directory a parsed phonebook directory
      */
-    public static void bubbleSort(List<String> directory) {
+    public static void bubbleSort(Directory directory) {
 
-        long timerStart = System.currentTimeMillis();
+        long timerStart = System.nanoTime();
 
         for (int i = 0; i < directory.size() - 1; i++) {
             for (int k = 0; k < directory.size() - 1 - i; k++) {
-                String name1 = directory.get(k).split(" ", 2)[1];
-                String name2 = directory.get(k + 1).split(" ", 2)[1];
-                if (name1.compareTo(name2) > 0) {
-                    String temp = directory.get(k);
-                    directory.set(k, directory.get(k + 1));
-                    directory.set(k + 1, temp);
+                if (directory.compareNames(k, k + 1) > 0) {
+                    directory.swap(k, k + 1);
                 }
             }
         }
 
-        long timerStop = System.currentTimeMillis();
-        timer = timerStop - timerStart;
+        long timerStop = System.nanoTime();
+        timer = (timerStop - timerStart) / 1_000_000;
     }
 
     /**
-     * Sort the specified directory list in place,
+     * Sort the specified directory in place,
      * using the quick-sort algorithm.
-     * @param directory a list of phonebook entries
+     * @param directory a parsed phonebook directory
      */
-    public static void quickSort(List<String> directory) {
+    public static void quickSort(Directory directory) {
+
+        long timerStart = System.nanoTime();
 
         quickSort(directory, 0, directory.size() - 1);
+
+        long timerStop = System.nanoTime();
+        timer = (timerStop - timerStart) / 1_000_000;
     }
 
     /**
-     * Helper of quickSort(List<String>).
-     * @param directory a list of phonebook entries
+     * Helper of quickSort(Directory).
+     * @param directory a parsed phonebook directory
      * @param left leftmost index during search
      * @param right rightmost index during search
      */
-    private static void quickSort(List<String> directory, int left, int right) {
-
-        long timerStart = System.currentTimeMillis();
+    private static void quickSort(Directory directory, int left, int right) {
 
         if (left < right) {
             int pivotIndex = partition(directory, left, right);
             quickSort(directory, left, pivotIndex - 1);
             quickSort(directory, pivotIndex + 1, right);
         }
-
-        long timerStop = System.currentTimeMillis();
-        timer = timerStop - timerStart;
     }
 
     /**
-     * Helper of quickSort(List<String>, int, int).
-     * @param directory a list of phonebook entries
+     * Helper of quickSort(Directory, int, int).
+     * @param directory a parsed phonebook directory
      * @param left leftmost index during search
      * @param right rightmost index during search
      * @return a pivot index.
      */
-    private static int partition(List<String> directory, int left, int right) {
+    private static int partition(Directory directory, int left, int right) {
 
-        String pivot = directory.get(right).split(" ", 2)[1];
         int partitionIndex = left;
 
         for (int i = left; i < right; i++) {
-            String name = directory.get(i).split(" ", 2)[1];
-            if (name.compareTo(pivot) <= 0) { // may be used '<' as well
-                swap(directory, i, partitionIndex);
+            if (directory.compareNames(i, right) <= 0) { // may be used '<' as well
+                directory.swap(i, partitionIndex);
                 partitionIndex++;
             }
         }
 
-        swap(directory, partitionIndex, right);
+        directory.swap(partitionIndex, right);
 
         return partitionIndex;
     }
 
     /**
-     * Helper of partition().
-     * @param directory a list of phonebook entries
-     * @param i an index to be swapped with j.
-     * @param j an index to be swapped with i.
+     * Sort the specified mapped directory in place, using the quick-sort algorithm.
+     * Only the line offsets are reordered, names are compared straight from the mapped bytes.
+     * @param directory a mapped directory
+     */
+    public static void quickSort(MappedDirectory directory) {
+
+        long timerStart = System.nanoTime();
+
+        quickSort(directory, 0, directory.size() - 1);
+
+        long timerStop = System.nanoTime();
+        timer = (timerStop - timerStart) / 1_000_000;
+    }
+
+    /**
+     * Does not sort anything if the specified directory file already has a valid
+     * sorted index, which is then memory-mapped. Otherwise the file is mapped,
+     * its line offsets are quick-sorted and written as the index for the next run.
+     * @param directoryFile an existing directory file
+     * @return a sorted index of the directory file.
+     * @throws IOException if the directory file cannot be read
+     */
+    public static SortedIndex sortedIndex(File directoryFile) throws IOException {
+
+        long timerStart = System.nanoTime();
+
+        SortedIndex index = SortedIndex.open(directoryFile);
+        if (index != null) {
+            System.out.printf("Using sorted index '%s'.%n", SortedIndex.indexFileOf(directoryFile).getName());
+        } else {
+            MappedDirectory directory = MappedDirectory.load(directoryFile);
+            quickSort(directory, 0, directory.size() - 1);
+            try {
+                index = SortedIndex.write(directory, directoryFile);
+                System.out.printf("Sorted index '%s' created.%n", SortedIndex.indexFileOf(directoryFile).getName());
+            } catch (IOException e) {
+                System.out.println("Error writing index file. The index is kept in memory only.");
+                index = SortedIndex.inMemory(directory);
+            }
+        }
+
+        long timerStop = System.nanoTime();
+        timer = (timerStop - timerStart) / 1_000_000;
+
+        return index;
+    }
+
+    /**
+     * Helper of quickSort(MappedDirectory).
+     * Recurses into the smaller part only, so the stack stays shallow,
+     * and insertion-sorts small parts.
+     * @param directory a mapped directory
+     * @param left leftmost index during search
+     * @param right rightmost index during search
+     */
+    private static void quickSort(MappedDirectory directory, int left, int right) {
+
+        while (right - left >= INSERTION_SORT_THRESHOLD) {
+            int pivotIndex = partitionMedianOfThree(directory, left, right);
+            if (pivotIndex - left < right - pivotIndex) {
+                quickSort(directory, left, pivotIndex - 1);
+                left = pivotIndex + 1;
+            } else {
+                quickSort(directory, pivotIndex + 1, right);
+                right = pivotIndex - 1;
+            }
+        }
+        insertionSort(directory, left, right);
+    }
+
+    /**
+     * Helper of quickSort(MappedDirectory, int, int).
+     * The median of the leftmost, middle and rightmost entries is used as pivot,
+     * so sorted or reversed input splits evenly, and both scans stop on names
+     * equal to the pivot, so many equal names split evenly too. Needs at least three entries.
+     * @param directory a mapped directory
+     * @param left leftmost index during search
+     * @param right rightmost index during search
+     * @return a pivot index.
+     */
+    private static int partitionMedianOfThree(MappedDirectory directory, int left, int right) {
+
+        int mid = left + (right - left) / 2;
+        if (directory.compareNames(mid, left) < 0) {
+            directory.swap(mid, left);
+        }
+        if (directory.compareNames(right, left) < 0) {
+            directory.swap(right, left);
+        }
+        if (directory.compareNames(right, mid) < 0) {
+            directory.swap(right, mid);
+        }
+
+        // left and right now guard the scans, the pivot waits next to right
+        int pivot = right - 1;
+        directory.swap(mid, pivot);
+        int i = left;
+        int j = pivot;
+
+        while (true) {
+            do {
+                i++;
+            } while (directory.compareNames(i, pivot) < 0);
+            do {
+                j--;
+            } while (directory.compareNames(j, pivot) > 0);
+            if (i >= j) {
+                break;
+            }
+            directory.swap(i, j);
+        }
+
+        directory.swap(i, pivot);
+
+        return i;
+    }
+
+    /**
+     * Sort a small range of the mapped directory in place, using the insertion-sort algorithm.
+     * @param directory a mapped directory
+     * @param left leftmost index of the range
+     * @param right rightmost index of the range
+     */
+    private static void insertionSort(MappedDirectory directory, int left, int right) {
+
+        for (int i = left + 1; i <= right; i++) {
+            for (int k = i; k > left && directory.compareNames(k - 1, k) > 0; k--) {
+                directory.swap(k - 1, k);
+            }
+        }
+    }
+
+    /**
+     * Sort the specified directory in place, using the specified algorithm.
+     * @param directory a parsed phonebook directory
+     * @param algorithm a sorting algorithm
+     */
+    public static void sort(Directory directory, Algorithm algorithm) {
+
+        switch (algorithm) {
+            case QUICK:
+                quickSort(directory);
+                break;
+            case PARALLEL_QUICK:
+                parallelQuickSort(directory);
+                break;
+            case PARALLEL_MERGE:
+                parallelMergeSort(directory);
+                break;
+            default:
+                throw new IllegalStateException("Unexpected value: " + algorithm);
+        }
+    }
+
+    /**
+     * Sort the specified directory in place, using a quick-sort
+     * whose partitions are sorted in parallel on the common fork/join pool.
+     * @param directory a parsed phonebook directory
      */
-    private static void swap(List<String> directory, int i, int j) {
+    public static void parallelQuickSort(Directory directory) {
 
-        String temp = directory.get(i);
-        directory.set(i, directory.get(j));
-        directory.set(j, temp);
+        long timerStart = System.nanoTime();
+
+        ForkJoinPool.commonPool().invoke(new QuickSortTask(directory, 0, directory.size() - 1));
+
+        long timerStop = System.nanoTime();
+        timer = (timerStop - timerStart) / 1_000_000;
+    }
+
+    /**
+     * Sort the specified directory, using a merge-sort
+     * whose halves are sorted in parallel on the common fork/join pool.
+     * The entries are sorted by index first and moved once at the end.
+     * @param directory a parsed phonebook directory
+     */
+    public static void parallelMergeSort(Directory directory) {
+
+        long timerStart = System.nanoTime();
+
+        int[] order = new int[directory.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        ForkJoinPool.commonPool().invoke(
+                new MergeSortTask(directory, order, new int[order.length], 0, order.length));
+        directory.reorder(order);
+
+        long timerStop = System.nanoTime();
+        timer = (timerStop - timerStart) / 1_000_000;
+    }
+
+    /**
+     * Quick-sorts a range of the directory, forking a task per partition
+     * until partitions are small enough to be sorted sequentially.
+     */
+    private static class QuickSortTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Directory directory;
+        private final int left;
+        private final int right;
+
+        QuickSortTask(Directory directory, int left, int right) {
+            this.directory = directory;
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        protected void compute() {
+
+            if (right - left < SEQUENTIAL_THRESHOLD) {
+                sequentialQuickSort(directory, left, right);
+                return;
+            }
+
+            int pivotIndex = partitionMedianOfThree(directory, left, right);
+            invokeAll(new QuickSortTask(directory, left, pivotIndex - 1),
+                    new QuickSortTask(directory, pivotIndex + 1, right));
+        }
+    }
+
+    /**
+     * Helper of QuickSortTask.
+     * Recurses into the smaller part only and insertion-sorts small parts.
+     * @param directory a parsed phonebook directory
+     * @param left leftmost index during search
+     * @param right rightmost index during search
+     */
+    private static void sequentialQuickSort(Directory directory, int left, int right) {
+
+        while (right - left >= INSERTION_SORT_THRESHOLD) {
+            int pivotIndex = partitionMedianOfThree(directory, left, right);
+            if (pivotIndex - left < right - pivotIndex) {
+                sequentialQuickSort(directory, left, pivotIndex - 1);
+                left = pivotIndex + 1;
+            } else {
+                sequentialQuickSort(directory, pivotIndex + 1, right);
+                right = pivotIndex - 1;
+            }
+        }
+        insertionSort(directory, left, right);
+    }
+
+    /**
+     * Helper of the parallel quick-sort.
+     * The median of the leftmost, middle and rightmost entries is used as pivot,
+     * so sorted or reversed input splits evenly. Needs at least three entries.
+     * @param directory a parsed phonebook directory
+     * @param left leftmost index during search
+     * @param right rightmost index during search
+     * @return a pivot index.
+     */
+    private static int partitionMedianOfThree(Directory directory, int left, int right) {
+
+        int mid = left + (right - left) / 2;
+        if (directory.compareNames(mid, left) < 0) {
+            directory.swap(mid, left);
+        }
+        if (directory.compareNames(right, left) < 0) {
+            directory.swap(right, left);
+        }
+        if (directory.compareNames(right, mid) < 0) {
+            directory.swap(right, mid);
+        }
+
+        // left and right now guard the scans, the pivot waits next to right
+        int pivot = right - 1;
+        directory.swap(mid, pivot);
+        int i = left;
+        int j = pivot;
+
+        while (true) {
+            do {
+                i++;
+            } while (directory.compareNames(i, pivot) < 0);
+            do {
+                j--;
+            } while (directory.compareNames(j, pivot) > 0);
+            if (i >= j) {
+                break;
+            }
+            directory.swap(i, j);
+        }
+
+        directory.swap(i, pivot);
+
+        return i;
+    }
+
+    /**
+     * Sort a small range of the directory in place, using the insertion-sort algorithm.
+     * @param directory a parsed phonebook directory
+     * @param left leftmost index of the range
+     * @param right rightmost index of the range
+     */
+    private static void insertionSort(Directory directory, int left, int right) {
+
+        for (int i = left + 1; i <= right; i++) {
+            for (int k = i; k > left && directory.compareNames(k - 1, k) > 0; k--) {
+                directory.swap(k - 1, k);
+            }
+        }
+    }
+
+    /**
+     * Merge-sorts a range of entry indexes, forking a task per half
+     * until halves are small enough to be sorted sequentially.
+     */
+    private static class MergeSortTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Directory directory;
+        private final int[] order;
+        private final int[] buffer;
+        private final int from;
+        private final int to;
+
+        MergeSortTask(Directory directory, int[] order, int[] buffer, int from, int to) {
+            this.directory = directory;
+            this.order = order;
+            this.buffer = buffer;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+
+            if (to - from < SEQUENTIAL_THRESHOLD) {
+                sequentialMergeSort(directory, order, buffer, from, to);
+                return;
+            }
+
+            int mid = from + (to - from) / 2;
+            invokeAll(new MergeSortTask(directory, order, buffer, from, mid),
+                    new MergeSortTask(directory, order, buffer, mid, to));
+            merge(directory, order, buffer, from, mid, to);
+        }
+    }
+
+    /**
+     * Helper of MergeSortTask. Insertion-sorts small ranges.
+     * @param directory a parsed phonebook directory
+     * @param order entry indexes to be sorted
+     * @param buffer scratch space as long as order
+     * @param from first index of the range
+     * @param to index after the last of the range
+     */
+    private static void sequentialMergeSort(Directory directory, int[] order, int[] buffer, int from, int to) {
+
+        if (to - from <= INSERTION_SORT_THRESHOLD) {
+            for (int i = from + 1; i < to; i++) {
+                int entry = order[i];
+                int k = i;
+                while (k > from && directory.compareNames(order[k - 1], entry) > 0) {
+                    order[k] = order[k - 1];
+                    k--;
+                }
+                order[k] = entry;
+            }
+            return;
+        }
+
+        int mid = from + (to - from) / 2;
+        sequentialMergeSort(directory, order, buffer, from, mid);
+        sequentialMergeSort(directory, order, buffer, mid, to);
+        merge(directory, order, buffer, from, mid, to);
+    }
+
+    /**
+     * Merge two consecutive sorted ranges of entry indexes.
+     * @param directory a parsed phonebook directory
+     * @param order entry indexes, sorted within [from, mid) and [mid, to)
+     * @param buffer scratch space as long as order
+     * @param from first index of the left range
+     * @param mid first index of the right range
+     * @param to index after the last of the right range
+     */
+    private static void merge(Directory directory, int[] order, int[] buffer, int from, int mid, int to) {
+
+        // already in order, nothing to merge
+        if (directory.compareNames(order[mid - 1], order[mid]) <= 0) {
+            return;
+        }
+
+        System.arraycopy(order, from, buffer, from, to - from);
+        int i = from;
+        int k = mid;
+        for (int target = from; target < to; target++) {
+            if (k >= to || (i < mid && directory.compareNames(buffer[i], buffer[k]) <= 0)) {
+                order[target] = buffer[i++];
+            } else {
+                order[target] = buffer[k++];
+            }
+        }
     }
 }
@@ -0,0 +1,286 @@
+package phonebook;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * A suffix array over all names of a directory, answering substring and prefix queries
+ * with two binary searches instead of a scan over every entry.
+ *
+ * The names are concatenated into a single text, each one preceded by a separator:
+ *     "\0Ann Smith\0Bob Smythe\0..."
+ * Every position of the text is a suffix, and suffixes are sorted only up to
+ * the end of their own name, since no query ever crosses a separator.
+ * A substring query finds the range of suffixes starting with the query,
+ * while a prefix query looks for the separator followed by the prefix,
+ * so that its range holds each matching entry exactly once.
+ */
+public class SuffixIndex {
+
+    private static final char SEPARATOR = '\0';
+    private static final int END = -1;
+    private static final int INSERTION_SORT_THRESHOLD = 16;
+
+    private final char[] text;
+    private final int[] entryStarts;
+    private final int[] suffixes;
+    private final Random random = new Random(0);
+
+    /**
+     * Build the suffix array of the names of the specified directory.
+     * Entries are referred to by their index in the directory.
+     * @param directory a parsed phonebook directory
+     * @throws IllegalArgumentException if the names, with their separators,
+     *                                  are more characters than an array can hold
+     */
+    public SuffixIndex(Directory directory) {
+
+        long total = 0;
+        for (int i = 0; i < directory.size(); i++) {
+            total += directory.getName(i).length() + 1;
+        }
+        if (total > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException(String.format(
+                    "The names of the directory take %d characters, "
+                            + "more than the %d a suffix index can hold.", total, Integer.MAX_VALUE));
+        }
+        int length = (int) total;
+
+        text = new char[length];
+        entryStarts = new int[directory.size()];
+        int position = 0;
+        for (int i = 0; i < directory.size(); i++) {
+            String name = directory.getName(i);
+            entryStarts[i] = position;
+            text[position++] = SEPARATOR;
+            name.getChars(0, name.length(), text, position);
+            position += name.length();
+        }
+
+        suffixes = new int[length];
+        for (int i = 0; i < length; i++) {
+            suffixes[i] = i;
+        }
+        sort(0, length, 0);
+    }
+
+    /**
+     * Getter
+     * @param position a position of a suffix
+     * @param depth how many characters into the suffix
+     * @return the character, or END once the suffix's name is over.
+     */
+    private int charAt(int position, int depth) {
+
+        int p = position + depth;
+        if (p >= text.length || (depth > 0 && text[p] == SEPARATOR)) {
+            return END;
+        }
+        return text[p];
+    }
+
+    /**
+     * Sort the suffixes in [from, to) which share their first depth characters,
+     * using the multikey (three-way radix) quick-sort algorithm.
+     * @param from first index of the range
+     * @param to index after the last of the range
+     * @param depth number of characters already known to be equal
+     */
+    private void sort(int from, int to, int depth) {
+
+        while (to - from > INSERTION_SORT_THRESHOLD) {
+            int pivot = charAt(suffixes[from + random.nextInt(to - from)], depth);
+
+            // [from, lt) < pivot, [lt, i) == pivot, [gt, to) > pivot
+            int lt = from;
+            int gt = to;
+            int i = from;
+            while (i < gt) {
+                int c = charAt(suffixes[i], depth);
+                if (c < pivot) {
+                    swap(lt++, i++);
+                } else if (c > pivot) {
+                    swap(i, --gt);
+                } else {
+                    i++;
+                }
+            }
+
+            sort(from, lt, depth);
+            sort(gt, to, depth);
+            if (pivot == END) {
+                return;
+            }
+            from = lt;
+            to = gt;
+            depth++;
+        }
+
+        insertionSort(from, to, depth);
+    }
+
+    private void insertionSort(int from, int to, int depth) {
+
+        for (int i = from + 1; i < to; i++) {
+            for (int k = i; k > from && compare(suffixes[k - 1], suffixes[k], depth) > 0; k--) {
+                swap(k - 1, k);
+            }
+        }
+    }
+
+    private int compare(int position1, int position2, int depth) {
+
+        while (true) {
+            int c1 = charAt(position1, depth);
+            int c2 = charAt(position2, depth);
+            if (c1 != c2) {
+                return c1 - c2;
+            }
+            if (c1 == END) {
+                return 0;
+            }
+            depth++;
+        }
+    }
+
+    private void swap(int i, int j) {
+
+        int temp = suffixes[i];
+        suffixes[i] = suffixes[j];
+        suffixes[j] = temp;
+    }
+
+    /**
+     * Compare the start of a suffix with the specified pattern.
+     * @param position a position of a suffix
+     * @param pattern a pattern
+     * @return 0 if the suffix starts with the pattern, else a negative or positive number.
+     */
+    private int comparePrefix(int position, String pattern) {
+
+        for (int k = 0; k < pattern.length(); k++) {
+            int c = charAt(position, k);
+            if (c != pattern.charAt(k)) {
+                return c - pattern.charAt(k);
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Find the first suffix, from the specified index on, which is not below the pattern.
+     * @param pattern a pattern
+     * @param from index to start from
+     * @param strict true to skip the suffixes starting with the pattern as well
+     * @return an index of the suffix array.
+     */
+    private int bound(String pattern, int from, boolean strict) {
+
+        int left = from;
+        int right = suffixes.length;
+        while (left < right) {
+            int mid = left + (right - left) / 2;
+            int comparison = comparePrefix(suffixes[mid], pattern);
+            if (comparison < 0 || (strict && comparison == 0)) {
+                left = mid + 1;
+            } else {
+                right = mid;
+            }
+        }
+        return left;
+    }
+
+    /**
+     * Find the entry the specified text position belongs to.
+     * @param position a position in the text
+     * @return an entry index.
+     */
+    private int entryOf(int position) {
+
+        int index = Arrays.binarySearch(entryStarts, position);
+        return index >= 0 ? index : -index - 2;
+    }
+
+    /**
+     * Check whether any name contains the specified text.
+     * @param pattern a text
+     * @return true if found, else false.
+     */
+    public boolean contains(String pattern) {
+
+        int from = bound(pattern, 0, false);
+        return from < suffixes.length && comparePrefix(suffixes[from], pattern) == 0;
+    }
+
+    /**
+     * Find all entries whose name contains the specified text.
+     * @param pattern a text
+     * @return the indexes of the matching entries in ascending order.
+     */
+    public int[] substring(String pattern) {
+
+        int from = bound(pattern, 0, false);
+        int to = bound(pattern, from, true);
+
+        BitSet entries = new BitSet(entryStarts.length);
+        for (int i = from; i < to; i++) {
+            entries.set(entryOf(suffixes[i]));
+        }
+        return entries.stream().toArray();
+    }
+
+    /**
+     * Find all entries whose name starts with the specified prefix.
+     * @param prefix a prefix
+     * @return the indexes of the matching entries in name order.
+     */
+    public int[] prefix(String prefix) {
+
+        String pattern = SEPARATOR + prefix;
+        int from = bound(pattern, 0, false);
+        int to = bound(pattern, from, true);
+        return entriesOf(from, to);
+    }
+
+    /**
+     * Find the entries starting with each of the specified prefixes.
+     * The prefixes are looked up in sorted order, so each search
+     * starts from where the previous one ended.
+     * @param prefixes a list of prefixes
+     * @return the matching entry indexes per prefix, in the order of the prefixes.
+     */
+    public List<int[]> prefixes(List<String> prefixes) {
+
+        Integer[] order = new Integer[prefixes.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (i, j) -> prefixes.get(i).compareTo(prefixes.get(j)));
+
+        List<int[]> result = new ArrayList<>(prefixes.size());
+        for (int i = 0; i < order.length; i++) {
+            result.add(null);
+        }
+
+        int from = 0;
+        for (int i : order) {
+            String pattern = SEPARATOR + prefixes.get(i);
+            from = bound(pattern, from, false);
+            int to = bound(pattern, from, true);
+            result.set(i, entriesOf(from, to));
+        }
+        return result;
+    }
+
+    private int[] entriesOf(int from, int to) {
+
+        int[] entries = new int[to - from];
+        for (int i = from; i < to; i++) {
+            entries[i - from] = entryOf(suffixes[i]);
+        }
+        return entries;
+    }
+}
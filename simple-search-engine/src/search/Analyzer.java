@@ -0,0 +1,330 @@
+package search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Turns text into the terms which are indexed and searched for.
+ * The same analyzer has to be used for the lines and for the queries,
+ * so every index knows the analyzer it was built with.
+ *
+ * A tokenizer finds the words of the text: runs of letters and digits,
+ * which may be joined by one of JOINERS ("djo@gmail.com", "o'neil", "2-3"),
+ * while spaces, commas and any other characters separate words.
+ * Every word then passes through a chain of filters, each of them rewriting the word in place:
+ *     the lower case filter (always),
+ *     the stop-word filter, dropping the most common English words (optional),
+ *     the stemming filter, reducing English plurals to the singular (optional).
+ * Each word has the position it has in the text, also when a filter drops the word before it,
+ * so phrases and distances are the same in the lines and in the queries.
+ *
+ * Words are read straight from a CharSequence into a reusable buffer,
+ * so analyzing a line allocates nothing.
+ */
+public class Analyzer {
+
+    public static final Analyzer STANDARD = new Analyzer(false, false);
+
+    private static final int STOP_WORDS = 1;
+    private static final int STEMMING = 2;
+    private static final String JOINERS = "@.'_-+&";
+    private static final byte WORD = 1;
+    private static final byte JOINER = 2;
+    private static final byte[] ASCII = new byte[128];
+    private static final char[][] STOP_WORD_LIST = {
+            "a".toCharArray(), "an".toCharArray(), "and".toCharArray(), "are".toCharArray(),
+            "as".toCharArray(), "at".toCharArray(), "be".toCharArray(), "but".toCharArray(),
+            "by".toCharArray(), "for".toCharArray(), "if".toCharArray(), "in".toCharArray(),
+            "into".toCharArray(), "is".toCharArray(), "it".toCharArray(), "no".toCharArray(),
+            "not".toCharArray(), "of".toCharArray(), "on".toCharArray(), "or".toCharArray(),
+            "such".toCharArray(), "that".toCharArray(), "the".toCharArray(), "their".toCharArray(),
+            "then".toCharArray(), "there".toCharArray(), "these".toCharArray(), "they".toCharArray(),
+            "this".toCharArray(), "to".toCharArray(), "was".toCharArray(), "will".toCharArray(),
+            "with".toCharArray()
+    };
+
+    private final int flags;
+    private final TokenFilter[] filters;
+
+    static {
+        for (char c = 0; c < ASCII.length; c++) {
+            ASCII[c] = Character.isLetterOrDigit(c) ? WORD : JOINERS.indexOf(c) >= 0 ? JOINER : 0;
+        }
+    }
+
+    /**
+     * A step of the chain. It may change the word in its buffer, but not make it longer.
+     */
+    public interface TokenFilter {
+
+        /**
+         * Filter a word.
+         * @param buffer the word's characters, from 0
+         * @param length the word's length
+         * @return the new length of the word, or 0 to drop it.
+         */
+        int filter(char[] buffer, int length);
+    }
+
+    /**
+     * Create an analyzer which lower cases words and optionally drops stop-words and stems them.
+     * @param stopWords true to drop stop-words
+     * @param stemming true to reduce plurals
+     */
+    public Analyzer(boolean stopWords, boolean stemming) {
+        this((stopWords ? STOP_WORDS : 0) | (stemming ? STEMMING : 0));
+    }
+
+    private Analyzer(int flags) {
+
+        this.flags = flags;
+        List<TokenFilter> chain = new ArrayList<>();
+        chain.add(Analyzer::lowerCase);
+        if ((flags & STOP_WORDS) != 0) {
+            chain.add(Analyzer::stopWord);
+        }
+        if ((flags & STEMMING) != 0) {
+            chain.add(Analyzer::stem);
+        }
+        this.filters = chain.toArray(new TokenFilter[0]);
+    }
+
+    /**
+     * Getter
+     * @param flags as returned by getFlags()
+     * @return the analyzer with those options, or null if they are unknown.
+     */
+    public static Analyzer of(int flags) {
+        return (flags & ~(STOP_WORDS | STEMMING)) == 0 ? new Analyzer(flags) : null;
+    }
+
+    /**
+     * Getter
+     * @return the options of this analyzer as bits, to be stored along with an index.
+     */
+    public int getFlags() {
+        return flags;
+    }
+
+    /**
+     * Getter
+     * @return a new stream of words, to be reused for text after text by a single thread.
+     */
+    public Tokens tokens() {
+        return new Tokens();
+    }
+
+    /**
+     * Analyze the specified text, typically a query.
+     * @param text some text
+     * @return its terms in order, repeated terms included.
+     */
+    public List<String> terms(CharSequence text) {
+
+        List<String> terms = new ArrayList<>();
+        Tokens tokens = tokens().reset(text);
+        while (tokens.next()) {
+            terms.add(tokens.term());
+        }
+        return terms;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Analyzer && ((Analyzer) o).flags == flags;
+    }
+
+    @Override
+    public int hashCode() {
+        return flags;
+    }
+
+    /**
+     * The words of a text after the filters, one by one.
+     */
+    public class Tokens {
+
+        private CharSequence text = "";
+        private int offset;
+        private int position;
+        private int count;
+        private char[] buffer = new char[32];
+        private int length;
+
+        private Tokens() {
+        }
+
+        /**
+         * Start reading the specified text.
+         * @param text some text
+         * @return this stream.
+         */
+        public Tokens reset(CharSequence text) {
+
+            this.text = text;
+            this.offset = 0;
+            this.count = 0;
+            return this;
+        }
+
+        /**
+         * Move to the next word which is kept by every filter.
+         * @return false if there are no more words.
+         */
+        public boolean next() {
+
+            while (tokenize()) {
+                position = count++;
+                for (TokenFilter filter : filters) {
+                    length = filter.filter(buffer, length);
+                    if (length == 0) {
+                        break;
+                    }
+                }
+                if (length > 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Copy the next word of the text into the buffer.
+         * @return false if there are no more words.
+         */
+        private boolean tokenize() {
+
+            int end = text.length();
+            while (offset < end && !isWordChar(text, offset)) {
+                offset++;
+            }
+            if (offset == end) {
+                return false;
+            }
+
+            length = 0;
+            while (offset < end) {
+                char c = text.charAt(offset);
+                boolean joiner = c < ASCII.length && ASCII[c] == JOINER;
+                if (joiner ? offset + 1 == end || !isWordChar(text, offset + 1) : !isWordChar(text, offset)) {
+                    break;
+                }
+                if (length + 1 >= buffer.length) {
+                    buffer = Arrays.copyOf(buffer, buffer.length << 1);
+                }
+                buffer[length++] = c;
+                offset++;
+                if (Character.isHighSurrogate(c) && offset < end && Character.isLowSurrogate(text.charAt(offset))) {
+                    buffer[length++] = text.charAt(offset++);
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Getter
+         * @return the characters of the current word, from 0 to length().
+         */
+        public char[] buffer() {
+            return buffer;
+        }
+
+        /**
+         * Getter
+         * @return the length of the current word.
+         */
+        public int length() {
+            return length;
+        }
+
+        /**
+         * Getter
+         * @return the current word.
+         */
+        public String term() {
+            return new String(buffer, 0, length);
+        }
+
+        /**
+         * Getter
+         * @return the position of the current word in the text, counting dropped words too.
+         */
+        public int position() {
+            return position;
+        }
+
+        /**
+         * Getter
+         * @return the number of words read so far, counting dropped words too.
+         */
+        public int count() {
+            return count;
+        }
+    }
+
+    private static boolean isWordChar(CharSequence text, int offset) {
+
+        char c = text.charAt(offset);
+        if (c < ASCII.length) {
+            return ASCII[c] == WORD;
+        }
+        return Character.isLetterOrDigit(Character.codePointAt(text, offset));
+    }
+
+    private static int lowerCase(char[] buffer, int length) {
+
+        for (int i = 0; i < length; i++) {
+            char c = buffer[i];
+            if (c < 128) {
+                if (c >= 'A' && c <= 'Z') {
+                    buffer[i] = (char) (c + ('a' - 'A'));
+                }
+            } else if (Character.isHighSurrogate(c) && i + 1 < length) {
+                int lower = Character.toLowerCase(Character.toCodePoint(c, buffer[i + 1]));
+                if (Character.charCount(lower) == 2) {
+                    Character.toChars(lower, buffer, i);
+                }
+                i++;
+            } else {
+                buffer[i] = Character.toLowerCase(c);
+            }
+        }
+        return length;
+    }
+
+    private static int stopWord(char[] buffer, int length) {
+
+        for (char[] stopWord : STOP_WORD_LIST) {
+            if (stopWord.length == length && Arrays.equals(stopWord, 0, length, buffer, 0, length)) {
+                return 0;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Reduce a plural to the singular with the rules of the S-stemmer (Harman, 1991):
+     * "-ies" becomes "-y" (but not "-eies", "-aies"), "-es" becomes "-e" (but not "-aes", "-ees", "-oes"),
+     * and a final "s" is dropped (but not in "-us", "-ss").
+     */
+    private static int stem(char[] buffer, int length) {
+
+        if (length < 3 || buffer[length - 1] != 's') {
+            return length;
+        }
+        char second = buffer[length - 2];
+        char third = buffer[length - 3];
+        if (second == 'e' && third == 'i') {
+            if (length > 3 && (buffer[length - 4] == 'e' || buffer[length - 4] == 'a')) {
+                return length;
+            }
+            buffer[length - 3] = 'y';
+            return length - 2;
+        }
+        if (second == 'e') {
+            return third == 'a' || third == 'e' || third == 'o' ? length : length - 1;
+        }
+        return second == 'u' || second == 's' ? length : length - 1;
+    }
+}
@@ -1,8 +1,6 @@
 package search;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
 import java.util.List;
 import java.util.Scanner;
@@ -13,18 +11,30 @@ import java.util.Scanner;
  */
 public class Application {
 
+    static final int TOP_K = 10;
+    static final int NEAR_DISTANCE = 3;
+    static final int FUZZY_DISTANCE = 2;
+    static final int CACHE_ENTRIES = 1024;
+    static final long CACHE_BYTES = 64L << 20;
     private static final Scanner SCANNER;
-    private static final InvertedIndex invertedIndex;
+    private static Searchable invertedIndex;
+    private static QueryCache queryCache;
+    private static int threads;
+    private static Analyzer analyzer;
 
     static {
         SCANNER = new Scanner(System.in);
         invertedIndex = new InvertedIndex();
+        threads = Runtime.getRuntime().availableProcessors();
+        analyzer = Analyzer.STANDARD;
     }
 
     /**
      * Run this method to start the application.
      * @param args arguments from terminal (shell).
-     *             Expects to parse a data-file from arguments.
+     *             Expects to parse a data-file from arguments,
+     *             and optionally the number of threads building the index: --threads N,
+     *             and whether to drop stop-words and reduce plurals: --stop-words --stem
      */
     public static void run(String[] args) {
 
@@ -40,7 +50,25 @@ public class Application {
      * @param args arguments from a terminal.
      * @return an existing file either as specified by args, or the default.
      */
-    private static File parseArgs(String[] args) {
+    static File parseArgs(String[] args) {
+
+        boolean stopWords = false;
+        boolean stemming = false;
+        for (String arg : args) {
+            stopWords |= arg.equals("--stop-words");
+            stemming |= arg.equals("--stem");
+        }
+        analyzer = new Analyzer(stopWords, stemming);
+
+        for (int i = 0; i < args.length - 1; i++) {
+            if (args[i].equals("--threads")) {
+                try {
+                    threads = Math.max(1, Integer.parseInt(args[i + 1]));
+                } catch (NumberFormatException e) {
+                    System.out.printf("\"%s\" isn't a valid number of threads. It's skipped.%n", args[i + 1]);
+                }
+            }
+        }
 
         for (int i = 0; i < args.length - 1; i++) {
             if (args[i].equals("--data")) {
@@ -57,30 +85,56 @@ public class Application {
     }
 
     /**
-     * Read the specified file and feed each text-line to the InvertedIndex class.
+     * Open the index of the specified file and put a QueryCache in front of it.
      * @param file a file containing text.
      * @return true if file read successfully, else false.
      */
     private static boolean readFromFile(File file) {
 
-        if (file == null) {
+        Searchable index = openIndex(file);
+        if (index == null) {
             return false;
         }
 
-        try (BufferedReader br = new BufferedReader(new FileReader(file))) {
+        queryCache = new QueryCache(index, CACHE_ENTRIES, CACHE_BYTES);
+        invertedIndex = queryCache;
+        return true;
+    }
+
+    /**
+     * Open the index segment of the specified file, or index its text-lines
+     * on several threads and write the segment for the next run.
+     * @param file a file containing text.
+     * @return the index, or null if the file cannot be read.
+     */
+    static Searchable openIndex(File file) {
+
+        if (file == null) {
+            return null;
+        }
 
-            int lineIndex = 0;
-            String line = br.readLine();
+        try {
+            Segment segment = Segment.open(file, analyzer);
+            if (segment != null) {
+                System.out.printf("Using index segment of '%s'.%n", file.getName());
+                return segment;
+            }
 
-            while (line != null) {
-                invertedIndex.add(line, lineIndex++);
-                line = br.readLine();
+            InvertedIndex built = IndexBuilder.build(file, threads, analyzer);
+            System.out.printf("Indexed %d lines (%d words) in %d ms using %d threads.%n",
+                    built.size(), built.getTotalLength(), IndexBuilder.getTimer(), threads);
+            try {
+                Segment written = Segment.write(built, file);
+                System.out.printf("Index segment of '%s' created.%n", file.getName());
+                return written;
+            } catch (IOException e) {
+                System.out.printf("Error writing the index segment of '%s'%n", file.getName());
+                return built;
             }
-            return true;
         } catch (IOException e) {
             System.out.printf("Error reading from file '%s'%n", file.getName());
         }
-        return false;
+        return null;
     }
 
     /**
@@ -92,6 +146,7 @@ public class Application {
             System.out.println("=== Menu ===");
             System.out.println("1. Find a word");
             System.out.println("2. Print all text-lines");
+            System.out.println("3. Show query cache statistics");
             System.out.println("0. Exit");
 
             String input = SCANNER.nextLine();
@@ -104,6 +159,10 @@ public class Application {
                 case "2":
                     displayPeople();
                     break;
+                case "3":
+                    System.out.println(queryCache.getStatistics());
+                    System.out.println();
+                    break;
                 case "0":
                     System.out.println("Bye!");
                     return;
@@ -115,14 +174,18 @@ public class Application {
 
     /**
      * Search for a word as specified by user input and using
-     * a specified matching strategy (all|any|none).
+     * a specified matching strategy (all|any|none|top|phrase|near|fuzzy).
+     * TOP ranks the lines matching any word and shows only the best TOP_K,
+     * PHRASE matches the words in order next to each other,
+     * NEAR matches them in any order within NEAR_DISTANCE positions,
+     * and FUZZY matches all words allowing up to FUZZY_DISTANCE typos in each.
      */
     private static void findPerson() {
 
-        System.out.println("Select a matching strategy: ALL, ANY, NONE");
+        System.out.println("Select a matching strategy: ALL, ANY, NONE, TOP, PHRASE, NEAR, FUZZY");
         String strategy = SCANNER.nextLine().toUpperCase();
         System.out.println();
-        if (!strategy.matches("ALL|ANY|NONE")) {
+        if (!strategy.matches("ALL|ANY|NONE|TOP|PHRASE|NEAR|FUZZY")) {
             System.out.println("Invalid input");
             return;
         }
@@ -142,6 +205,18 @@ public class Application {
             case "NONE":
                 matches = invertedIndex.matchNone(target);
                 break;
+            case "TOP":
+                matches = invertedIndex.matchTop(target, TOP_K);
+                break;
+            case "PHRASE":
+                matches = invertedIndex.matchPhrase(target);
+                break;
+            case "NEAR":
+                matches = invertedIndex.matchNear(target, NEAR_DISTANCE);
+                break;
+            case "FUZZY":
+                matches = invertedIndex.matchFuzzy(target, FUZZY_DISTANCE);
+                break;
             default:
                 System.out.println("Invalid input");
         }
@@ -179,8 +254,8 @@ public class Application {
         }
 
         System.out.println("=== List of text-lines ===");
-        for (String person : invertedIndex.getLines()) {
-            System.out.println(person);
+        for (int i = 0; i < invertedIndex.size(); i++) {
+            System.out.println(invertedIndex.getLine(i));
         }
 
         System.out.println();
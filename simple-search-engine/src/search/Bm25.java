@@ -0,0 +1,222 @@
+package search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Ranks lines by the Okapi BM25 score of the query words:
+ *     score = sum of idf * freq * (K1 + 1) / (freq + K1 * (1 - B + B * length / average length)),
+ * where idf = ln(1 + (lines - lines with the word + 0.5) / (lines with the word + 0.5)).
+ *
+ * Only the best k lines are kept, in a min-heap whose lowest score is the threshold to beat.
+ * Each word has an upper bound of what it can add to a score (MaxScore):
+ * once the bounds of the weakest words together cannot beat the threshold,
+ * those words no longer propose candidates, and they are only checked for lines
+ * proposed by the others, while the rest of the bounds can still reach the threshold.
+ */
+public class Bm25 {
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    /**
+     * Find the k lines with the highest score for the specified query.
+     * @param index the lines to search
+     * @param query word(s) separated by space
+     * @param k the maximum number of lines
+     * @return line indexes, the highest score first, equal scores in line order.
+     */
+    public static int[] top(Searchable index, String query, int k) {
+
+        Set<String> words = new LinkedHashSet<>(index.getAnalyzer().terms(query));
+        List<PostingList> postings = new ArrayList<>();
+        for (String word : words) {
+            PostingList postingList = index.getPostingList(word);
+            if (postingList != null) {
+                postings.add(postingList);
+            }
+        }
+        if (postings.isEmpty() || k <= 0) {
+            return new int[0];
+        }
+
+        int lines = index.size();
+        double averageLength = Math.max(1.0, (double) index.getTotalLength() / lines);
+
+        // words sorted by ascending upper bound, bounds[i] is the sum of the first i upper bounds
+        int m = postings.size();
+        double[] idf = new double[m];
+        double[] upperBound = new double[m];
+        for (int i = 0; i < m; i++) {
+            int docs = postings.get(i).size();
+            idf[i] = Math.log(1 + (lines - docs + 0.5) / (docs + 0.5));
+            int freq = postings.get(i).maxFreq();
+            upperBound[i] = idf[i] * freq * (K1 + 1) / (freq + K1 * (1 - B));
+        }
+        Integer[] order = new Integer[m];
+        for (int i = 0; i < m; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (i, j) -> Double.compare(upperBound[i], upperBound[j]));
+
+        PostingList.Cursor[] cursors = new PostingList.Cursor[m];
+        double[] weights = new double[m];
+        double[] bounds = new double[m + 1];
+        for (int i = 0; i < m; i++) {
+            cursors[i] = postings.get(order[i]).cursor();
+            cursors[i].next();
+            weights[i] = idf[order[i]];
+            bounds[i + 1] = bounds[i] + upperBound[order[i]];
+        }
+
+        Heap heap = new Heap(k);
+        double threshold = 0;
+        int firstEssential = 0;
+
+        int doc = PostingList.END;
+        for (PostingList.Cursor cursor : cursors) {
+            doc = Math.min(doc, cursor.doc());
+        }
+
+        while (doc != PostingList.END) {
+            double norm = K1 * (1 - B + B * index.getLength(doc) / averageLength);
+            double score = 0;
+            int nextDoc = PostingList.END;
+
+            for (int i = firstEssential; i < m; i++) {
+                if (cursors[i].doc() == doc) {
+                    int freq = cursors[i].freq();
+                    score += weights[i] * freq * (K1 + 1) / (freq + norm);
+                    cursors[i].next();
+                }
+                nextDoc = Math.min(nextDoc, cursors[i].doc());
+            }
+            for (int i = firstEssential - 1; i >= 0 && score + bounds[i + 1] > threshold; i--) {
+                if (cursors[i].advance(doc) == doc) {
+                    int freq = cursors[i].freq();
+                    score += weights[i] * freq * (K1 + 1) / (freq + norm);
+                }
+            }
+
+            if (heap.offer(score, doc) && heap.isFull()) {
+                threshold = heap.minScore();
+                while (firstEssential < m && bounds[firstEssential + 1] <= threshold) {
+                    firstEssential++;
+                }
+                if (firstEssential == m) {
+                    break;
+                }
+            }
+            doc = nextDoc;
+        }
+
+        return heap.sorted();
+    }
+
+    /**
+     * A bounded min-heap of line indexes by score, kept in parallel primitive arrays.
+     * A line with a lower index wins a tie, so it is the larger of two equal scores.
+     */
+    private static class Heap {
+
+        private final double[] scores;
+        private final int[] docs;
+        private int size;
+
+        Heap(int capacity) {
+            scores = new double[capacity];
+            docs = new int[capacity];
+        }
+
+        boolean isFull() {
+            return size == scores.length;
+        }
+
+        double minScore() {
+            return scores[0];
+        }
+
+        /**
+         * Add a line if the heap is not full or it beats the lowest score, which is then dropped.
+         * @return true if the line was added, else false.
+         */
+        boolean offer(double score, int doc) {
+
+            if (size < scores.length) {
+                scores[size] = score;
+                docs[size] = doc;
+                siftUp(size++);
+                return true;
+            }
+            if (!less(scores[0], docs[0], score, doc)) {
+                return false;
+            }
+            scores[0] = score;
+            docs[0] = doc;
+            siftDown(0);
+            return true;
+        }
+
+        private static boolean less(double score1, int doc1, double score2, int doc2) {
+            return score1 < score2 || (score1 == score2 && doc1 > doc2);
+        }
+
+        private void siftUp(int i) {
+
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (!less(scores[i], docs[i], scores[parent], docs[parent])) {
+                    break;
+                }
+                swap(i, parent);
+                i = parent;
+            }
+        }
+
+        private void siftDown(int i) {
+
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && less(scores[child + 1], docs[child + 1], scores[child], docs[child])) {
+                    child++;
+                }
+                if (!less(scores[child], docs[child], scores[i], docs[i])) {
+                    break;
+                }
+                swap(i, child);
+                i = child;
+            }
+        }
+
+        private void swap(int i, int j) {
+
+            double score = scores[i];
+            scores[i] = scores[j];
+            scores[j] = score;
+            int doc = docs[i];
+            docs[i] = docs[j];
+            docs[j] = doc;
+        }
+
+        /**
+         * Empty the heap.
+         * @return its line indexes, the highest score first.
+         */
+        int[] sorted() {
+
+            int[] result = new int[size];
+            for (int i = result.length - 1; i >= 0; i--) {
+                result[i] = docs[0];
+                swap(0, --size);
+                siftDown(0);
+            }
+            return result;
+        }
+    }
+}
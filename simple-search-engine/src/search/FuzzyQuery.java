@@ -0,0 +1,173 @@
+package search;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntFunction;
+
+/**
+ * Finds the words of an index within a small edit distance of a (possibly misspelled) query word.
+ * An edit is inserting, deleting or replacing a character, or swapping two adjacent ones.
+ *
+ * The words of the index are sorted by code point (as the terms of a Segment),
+ * so the words sharing a prefix are a range of the dictionary, and the dictionary is walked
+ * like a trie, from prefix to longer prefix, next to a Levenshtein automaton of the query word.
+ * The state of the automaton is the row of edit distances between the prefix and every
+ * prefix of the query word, and a prefix whose smallest distance already exceeds the maximum
+ * cannot lead to a match, so the words starting with it are skipped by a binary search.
+ * Only the prefixes near the query word are visited, instead of every word of the index.
+ */
+public class FuzzyQuery {
+
+    private final int[] word;
+    private final int distance;
+    private final IntFunction<String> terms;
+    private final List<String> matches = new ArrayList<>();
+
+    private FuzzyQuery(String word, int distance, IntFunction<String> terms) {
+
+        this.word = word.codePoints().toArray();
+        this.distance = distance;
+        this.terms = terms;
+    }
+
+    /**
+     * Limit the distance by the length of the word: words of up to 2 characters
+     * must match exactly, of up to 5 characters they may have 1 edit, else 2.
+     * @param word a query word
+     * @param distance the largest distance wanted
+     * @return the distance allowed for the word.
+     */
+    public static int distanceOf(String word, int distance) {
+
+        int length = word.codePointCount(0, word.length());
+        return Math.min(distance, length <= 2 ? 0 : length <= 5 ? 1 : 2);
+    }
+
+    /**
+     * Find the words of a sorted dictionary within the specified edit distance of a word.
+     * @param word an analyzed word
+     * @param distance the largest number of edits
+     * @param count the number of words in the dictionary
+     * @param terms the word at each index of the dictionary, in code point order
+     * @return the matching words in dictionary order.
+     */
+    public static List<String> expand(String word, int distance, int count, IntFunction<String> terms) {
+
+        FuzzyQuery query = new FuzzyQuery(word, distance, terms);
+        if (count == 0) {
+            return query.matches;
+        }
+        int[] row = new int[query.word.length + 1];
+        for (int j = 0; j < row.length; j++) {
+            row[j] = j;
+        }
+        query.search(0, 0, count, null, row, -1);
+        return query.matches;
+    }
+
+    /**
+     * Visit the words of the dictionary starting with a prefix.
+     * @param prefix the length of the prefix in chars
+     * @param from the first word with the prefix
+     * @param to the index after the last word with the prefix
+     * @param previous the row of the prefix without its last character
+     * @param row the row of the prefix
+     * @param last the last character of the prefix, or -1 if the prefix is empty
+     */
+    private void search(int prefix, int from, int to, int[] previous, int[] row, int last) {
+
+        int i = from;
+        String term = terms.apply(i);
+        if (term.length() == prefix) {
+            if (row[word.length] <= distance) {
+                matches.add(term);
+            }
+            i++;
+        }
+
+        while (i < to) {
+            term = terms.apply(i);
+            int c = term.codePointAt(prefix);
+            int next = prefix + Character.charCount(c);
+            int end = endOf(term, next, i + 1, to);
+
+            int[] nextRow = step(previous, row, last, c);
+            if (min(nextRow) <= distance) {
+                search(next, i, end, row, nextRow, c);
+            }
+            i = end;
+        }
+    }
+
+    /**
+     * Find the end of the range of words starting with the specified prefix.
+     * @param term the word at from - 1
+     * @param prefix the length of its prefix
+     * @param from the first index to check
+     * @param to the end of a range of words sharing a shorter prefix
+     * @return the index of the first word not starting with the prefix, or to.
+     */
+    private int endOf(String term, int prefix, int from, int to) {
+
+        int left = from;
+        int right = to;
+        while (left < right) {
+            int mid = (left + right) >>> 1;
+            if (terms.apply(mid).regionMatches(0, term, 0, prefix)) {
+                left = mid + 1;
+            } else {
+                right = mid;
+            }
+        }
+        return left;
+    }
+
+    /**
+     * Move the automaton by one character: compute the row of the prefix followed by c.
+     * @param previous the row before the last character, or null
+     * @param row the row of the prefix
+     * @param last the last character of the prefix
+     * @param c the next character
+     * @return the new row.
+     */
+    private int[] step(int[] previous, int[] row, int last, int c) {
+
+        int[] next = new int[row.length];
+        next[0] = row[0] + 1;
+        for (int j = 1; j < row.length; j++) {
+            int cost = word[j - 1] == c ? 0 : 1;
+            next[j] = Math.min(Math.min(row[j] + 1, next[j - 1] + 1), row[j - 1] + cost);
+            if (previous != null && j > 1 && word[j - 1] == last && word[j - 2] == c) {
+                next[j] = Math.min(next[j], previous[j - 2] + 1);
+            }
+        }
+        return next;
+    }
+
+    private static int min(int[] row) {
+
+        int min = row[0];
+        for (int value : row) {
+            min = Math.min(min, value);
+        }
+        return min;
+    }
+
+    /**
+     * Compare words by code point, the order of their UTF-8 bytes.
+     * @return a negative number, zero or a positive number as a is less than, equal to or greater than b.
+     */
+    public static int compare(String a, String b) {
+
+        int i = 0;
+        while (i < a.length() && i < b.length()) {
+            int x = a.codePointAt(i);
+            int y = b.codePointAt(i);
+            if (x != y) {
+                return Integer.compare(x, y);
+            }
+            i += Character.charCount(x);
+        }
+        return Integer.compare(a.length(), b.length());
+    }
+}
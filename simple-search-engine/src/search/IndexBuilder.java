@@ -0,0 +1,157 @@
+package search;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Builds an InvertedIndex of a text file on several threads.
+ * The file is split into byte ranges ending at line breaks (shards),
+ * each shard is read and indexed on a worker thread with its own line numbering,
+ * and the shard indexes are then appended in file order, shifting their line indexes.
+ * Shards are at most MAX_SHARD_SIZE bytes, so each one is read into a single array,
+ * and large files are split into more shards than there are threads.
+ */
+public class IndexBuilder {
+
+    private static final long MAX_SHARD_SIZE = 64L << 20;
+    private static final int READ_BUFFER_SIZE = 1 << 13;
+
+    private static long timer;
+
+    /**
+     * Getter
+     * @return time in ms the last build took.
+     */
+    public static long getTimer() {
+        return timer;
+    }
+
+    /**
+     * Index the specified file.
+     * @param file a file containing text
+     * @param threads number of worker threads
+     * @param analyzer finds the words of the lines
+     * @return an index of every line of the file.
+     * @throws IOException if the file cannot be read
+     */
+    public static InvertedIndex build(File file, int threads, Analyzer analyzer) throws IOException {
+
+        long timerStart = System.nanoTime();
+
+        long[] bounds = split(file, Math.max(threads, (int) ((file.length() - 1) / MAX_SHARD_SIZE + 1)));
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<InvertedIndex>> shards = new ArrayList<>();
+            for (int i = 0; i < bounds.length - 1; i++) {
+                long start = bounds[i];
+                long end = bounds[i + 1];
+                shards.add(executor.submit(() -> buildShard(file, start, end, analyzer)));
+            }
+
+            InvertedIndex invertedIndex = new InvertedIndex(analyzer);
+            for (Future<InvertedIndex> shard : shards) {
+                invertedIndex.append(shard.get());
+            }
+            timer = (System.nanoTime() - timerStart) / 1_000_000;
+            return invertedIndex;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Split the specified file into byte ranges of about the same size,
+     * moving every boundary past the next line break, so no line is cut.
+     * @param file a file containing text
+     * @param shards the number of ranges wanted
+     * @return the ascending boundaries, starting with 0 and ending with the file's length.
+     * @throws IOException if the file cannot be read
+     */
+    private static long[] split(File file, int shards) throws IOException {
+
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            long length = raf.length();
+            List<Long> bounds = new ArrayList<>();
+            bounds.add(0L);
+
+            byte[] buffer = new byte[READ_BUFFER_SIZE];
+            for (int i = 1; i < shards; i++) {
+                long position = Math.max(length / shards * i, bounds.get(bounds.size() - 1));
+                raf.seek(position);
+                boolean found = false;
+                while (!found && position < length) {
+                    int read = raf.read(buffer);
+                    if (read < 0) {
+                        break;
+                    }
+                    for (int k = 0; k < read && !found; k++) {
+                        position++;
+                        found = buffer[k] == '\n';
+                    }
+                }
+                if (position >= length) {
+                    break;
+                }
+                if (position > bounds.get(bounds.size() - 1)) {
+                    bounds.add(position);
+                }
+            }
+            bounds.add(length);
+
+            long[] result = new long[bounds.size()];
+            for (int i = 0; i < result.length; i++) {
+                result[i] = bounds.get(i);
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Read and index the lines of the specified byte range.
+     * @param file a file containing text
+     * @param start first byte of the range, at the start of a line
+     * @param end byte after the range, at the start of a line or the end of the file
+     * @param analyzer finds the words of the lines
+     * @return an index of the range, with lines numbered from 0.
+     * @throws IOException if the file cannot be read
+     */
+    private static InvertedIndex buildShard(File file, long start, long end, Analyzer analyzer)
+            throws IOException {
+
+        byte[] bytes = new byte[(int) (end - start)];
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            raf.seek(start);
+            raf.readFully(bytes);
+        }
+
+        InvertedIndex shard = new InvertedIndex(analyzer);
+        try (BufferedReader br = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(bytes)))) {
+            int lineIndex = 0;
+            String line = br.readLine();
+
+            while (line != null) {
+                shard.add(line, lineIndex++);
+                line = br.readLine();
+            }
+        }
+        return shard;
+    }
+}
@@ -5,11 +5,36 @@ import java.util.*;
 /**
  * Maps each word to all positions/lines/documents in which the word occurs.
  * As a result, when we receive a query, we can immediately find the answer without any comparisons.
+ * The line indexes of each word are kept in a compressed PostingList,
+ * and queries combine them with merges over primitive ints.
  */
-public class InvertedIndex {
+public class InvertedIndex implements Searchable {
 
     private final List<String> LINES = new ArrayList<>();
-    private final Map<String, List<Integer>> MAP = new HashMap<>();
+    private final Map<String, PostingList> MAP = new HashMap<>();
+    private final Analyzer analyzer;
+    private final Analyzer.Tokens tokens;
+    private int[] lengths = new int[16];
+    private long totalLength;
+    private long generation;
+    private volatile String[] sortedTerms;
+
+    /**
+     * Create an empty index whose words are analyzed by Analyzer.STANDARD.
+     */
+    public InvertedIndex() {
+        this(Analyzer.STANDARD);
+    }
+
+    /**
+     * Create an empty index.
+     * @param analyzer finds the words of the lines and of the queries
+     */
+    public InvertedIndex(Analyzer analyzer) {
+
+        this.analyzer = analyzer;
+        this.tokens = analyzer.tokens();
+    }
 
     /**
      * Add an entry to InvertedIndex.
@@ -20,25 +45,42 @@ public class InvertedIndex {
     public void add(String entry, int index) {
 
         this.LINES.add(entry);
+        generation++;
+        sortedTerms = null;
 
-        for (String word : entry.split(" ")) {
-            String wordLower = word.toLowerCase();
-            if (MAP.containsKey(wordLower)) {
-                List<Integer> listOfIndexes = MAP.get(wordLower);
-                listOfIndexes.add(index);
-                MAP.put(wordLower, listOfIndexes);
-            } else {
-                MAP.put(wordLower, new ArrayList<>(List.of(index)));
-            }
+        tokens.reset(entry);
+        while (tokens.next()) {
+            MAP.computeIfAbsent(tokens.term(), w -> new PostingList()).add(index, tokens.position());
         }
+        setLength(index, tokens.count());
+    }
+
+    private void setLength(int index, int length) {
+
+        if (index >= lengths.length) {
+            lengths = Arrays.copyOf(lengths, Math.max(lengths.length << 1, index + 1));
+        }
+        lengths[index] = length;
+        totalLength += length;
     }
 
     /**
-     * Check if InvertedIndex consists of any data.
-     * @return true if no data exist, else false.
+     * Append all lines of another index after the lines of this one,
+     * shifting their line indexes by the number of lines already stored.
+     * @param shard an index whose lines are numbered from 0
      */
-    public boolean isEmpty() {
-        return LINES.isEmpty();
+    public void append(InvertedIndex shard) {
+
+        int offset = LINES.size();
+        LINES.addAll(shard.LINES);
+        generation++;
+        sortedTerms = null;
+        for (int i = 0; i < shard.size(); i++) {
+            setLength(offset + i, shard.lengths[i]);
+        }
+        for (Map.Entry<String, PostingList> entry : shard.MAP.entrySet()) {
+            MAP.computeIfAbsent(entry.getKey(), w -> new PostingList()).append(entry.getValue(), offset);
+        }
     }
 
     /**
@@ -48,91 +90,65 @@ public class InvertedIndex {
         return LINES;
     }
 
-    /**
-     * Search for line(s) in LINES matching all words of the query.
-     * @param query word(s) separated by space
-     * @return a list of matching lines from LINES.
-     */
-    public List<String> matchAll(String query) {
-
-        Set<String> foundTargets = new HashSet<>();
-        Set<Integer> set = new HashSet<>();
-
-        String[] targetParts = query.split(" ");
-        boolean foundMatch = false;
-
-        for (String word : targetParts) {
-            String wordLower = word.toLowerCase();
-            if (!foundMatch) {
-                if (MAP.containsKey(wordLower)) {
-                    foundMatch = true;
-                    set.addAll(MAP.get(wordLower));
-                }
-            } else {
-                if (MAP.containsKey(wordLower)) {
-                    set.retainAll(new HashSet<>(MAP.get(wordLower)));
-                }
-            }
-        }
+    @Override
+    public Analyzer getAnalyzer() {
+        return analyzer;
+    }
 
-        if (!set.isEmpty()) {
-            for (int index : set) {
-                foundTargets.add(LINES.get(index));
-            }
-            return new ArrayList<>(foundTargets);
-        }
+    @Override
+    public long getGeneration() {
+        return generation;
+    }
 
-        System.out.println("No matching people found.");
-        System.out.println();
-        return null;
+    @Override
+    public int size() {
+        return LINES.size();
     }
 
-    /**
-     * Search for line(s) in LINES matching any words of the query.
-     * @param query word(s) separated by space
-     * @return a list of matching lines from LINES.
-     */
-    public List<String> matchAny(String query) {
-
-        Set<String> foundTargets = new HashSet<>();
-
-        String[] targetParts = query.split(" ");
-        boolean foundMatch = false;
-        for (String word : targetParts) {
-            String wordLower = word.toLowerCase();
-            if (MAP.containsKey(wordLower)) {
-                foundMatch = true;
-                for (int index : MAP.get(wordLower)) {
-                    foundTargets.add(LINES.get(index));
-                }
-            }
-        }
+    @Override
+    public String getLine(int index) {
+        return LINES.get(index);
+    }
 
-        if (foundMatch) {
-            return new ArrayList<>(foundTargets);
-        }
+    @Override
+    public int getLength(int index) {
+        return lengths[index];
+    }
 
-        System.out.println("No matching people found.");
-        System.out.println();
-        return null;
+    @Override
+    public long getTotalLength() {
+        return totalLength;
+    }
+
+    @Override
+    public PostingList getPostingList(String word) {
+        return MAP.get(word);
     }
 
     /**
-     * Search for line(s) in LINES not matching any of words of the query.
-     * @param target a name to exclude from the resulting list.
-     * @return a list of people.
+     * Getter. The words are sorted on the first call after lines have been added.
+     * @param word an analyzed word
+     * @param distance the largest number of edits
+     * @return the words within the edit distance of the word.
      */
-    public List<String> matchNone(String target) {
-
-        Set<String> foundTargets = new HashSet<>(LINES);
-        foundTargets.removeAll(matchAny(target));
-
-        if (!foundTargets.isEmpty()) {
-            return new ArrayList<>(foundTargets);
+    @Override
+    public List<String> getFuzzyTerms(String word, int distance) {
+
+        String[] terms = sortedTerms;
+        if (terms == null) {
+            terms = MAP.keySet().toArray(new String[0]);
+            Arrays.sort(terms, FuzzyQuery::compare);
+            sortedTerms = terms;
         }
+        String[] dictionary = terms;
+        return FuzzyQuery.expand(word, distance, dictionary.length, i -> dictionary[i]);
+    }
 
-        System.out.println("No unmatching lines found.");
-        System.out.println();
-        return null;
+    /**
+     * Getter
+     * @return every word with its posting list.
+     */
+    Map<String, PostingList> getPostings() {
+        return MAP;
     }
 }
@@ -0,0 +1,180 @@
+package search;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An index which keeps taking new lines while it is being searched (near real-time).
+ * New lines go to a buffer owned by the writer, and a refresh freezes the buffer
+ * into a new segment and publishes an immutable Snapshot of all segments.
+ * Readers only ever read the latest published snapshot through a volatile field,
+ * so they never wait for add(), and see new lines once they have been refreshed.
+ *
+ * Segments are kept few by merging: whenever the newest in-memory segment has grown
+ * to at least 1/MERGE_FACTOR of the one before it, the two are merged, so sizes
+ * decrease geometrically and each line is copied a logarithmic number of times.
+ */
+public class LiveIndex implements Searchable {
+
+    private static final int FLUSH_SIZE = 1 << 12;
+    private static final int MERGE_FACTOR = 4;
+
+    private final List<Searchable> segments = new ArrayList<>();
+    private final Analyzer analyzer;
+    private InvertedIndex buffer;
+    private volatile Snapshot snapshot;
+    private long added;
+
+    /**
+     * Start from the specified index, which becomes the first segment.
+     * @param base an index which is no longer added to
+     */
+    public LiveIndex(Searchable base) {
+
+        analyzer = base.getAnalyzer();
+        buffer = new InvertedIndex(analyzer);
+        segments.add(base);
+        snapshot = new Snapshot(segments);
+    }
+
+    /**
+     * Getter
+     * @return the latest published snapshot.
+     */
+    public Snapshot snapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Getter
+     * @return the number of lines added since the start.
+     */
+    public synchronized long getAdded() {
+        return added;
+    }
+
+    /**
+     * Add a line. It is searchable after the next refresh,
+     * which happens at the latest once FLUSH_SIZE lines are buffered.
+     * @param line a line of text
+     */
+    public synchronized void add(String line) {
+
+        buffer.add(line, buffer.size());
+        added++;
+        if (buffer.size() >= FLUSH_SIZE) {
+            refresh();
+        }
+    }
+
+    /**
+     * Freeze the buffered lines into a segment and publish a new snapshot.
+     */
+    public synchronized void refresh() {
+
+        if (buffer.isEmpty()) {
+            return;
+        }
+        segments.add(buffer);
+        buffer = new InvertedIndex(analyzer);
+        merge();
+        snapshot = new Snapshot(segments);
+    }
+
+    /**
+     * Merge the two newest segments while the newest one is too large next to the one before it.
+     * A merge writes a new segment, so snapshots holding the old ones are not affected.
+     */
+    private void merge() {
+
+        while (segments.size() > 1) {
+            Searchable last = segments.get(segments.size() - 1);
+            Searchable previous = segments.get(segments.size() - 2);
+            if (!(last instanceof InvertedIndex) || !(previous instanceof InvertedIndex)
+                    || (long) last.size() * MERGE_FACTOR < previous.size()) {
+                return;
+            }
+
+            InvertedIndex merged = new InvertedIndex(analyzer);
+            merged.append((InvertedIndex) previous);
+            merged.append((InvertedIndex) last);
+            segments.remove(segments.size() - 1);
+            segments.set(segments.size() - 1, merged);
+        }
+    }
+
+    @Override
+    public Analyzer getAnalyzer() {
+        return analyzer;
+    }
+
+    @Override
+    public long getGeneration() {
+        return snapshot.getGeneration();
+    }
+
+    @Override
+    public int size() {
+        return snapshot.size();
+    }
+
+    @Override
+    public String getLine(int index) {
+        return snapshot.getLine(index);
+    }
+
+    @Override
+    public int getLength(int index) {
+        return snapshot.getLength(index);
+    }
+
+    @Override
+    public long getTotalLength() {
+        return snapshot.getTotalLength();
+    }
+
+    @Override
+    public PostingList getPostingList(String word) {
+        return snapshot.getPostingList(word);
+    }
+
+    @Override
+    public List<String> getFuzzyTerms(String word, int distance) {
+        return snapshot.getFuzzyTerms(word, distance);
+    }
+
+    @Override
+    public RoaringBitmap findAll(String query) {
+        return snapshot.findAll(query);
+    }
+
+    @Override
+    public RoaringBitmap findAny(String query) {
+        return snapshot.findAny(query);
+    }
+
+    @Override
+    public RoaringBitmap findNone(String query) {
+        return snapshot.findNone(query);
+    }
+
+    @Override
+    public RoaringBitmap findPhrase(String query) {
+        return snapshot.findPhrase(query);
+    }
+
+    @Override
+    public RoaringBitmap findNear(String query, int distance) {
+        return snapshot.findNear(query, distance);
+    }
+
+    @Override
+    public RoaringBitmap findFuzzy(String query, int distance) {
+        return snapshot.findFuzzy(query, distance);
+    }
+
+    @Override
+    public int[] findTop(String query, int k) {
+        return snapshot.findTop(query, k);
+    }
+}
@@ -4,6 +4,12 @@ public class Main {
 
     public static void main(String[] args) {
 
-        Application.run(args);
+        if (args.length > 0 && args[0].equals("--serve")) {
+            QueryServer.run(args);
+        } else if (args.length > 0 && args[0].equals("--benchmark")) {
+            ServerBenchmark.run(args);
+        } else {
+            Application.run(args);
+        }
     }
 }
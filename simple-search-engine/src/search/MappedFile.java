@@ -0,0 +1,112 @@
+package search;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A read-only file mapped into memory, addressed by long positions.
+ * A single MappedByteBuffer cannot exceed 2GB, so the file is mapped
+ * in chunks of 1GB, and a value crossing two chunks is read byte by byte.
+ */
+public class MappedFile {
+
+    private static final int CHUNK_BITS = 30;
+    private static final long CHUNK_MASK = (1L << CHUNK_BITS) - 1;
+
+    private final MappedByteBuffer[] chunks;
+    private final long length;
+
+    /**
+     * Map the specified file.
+     * @param file an existing file
+     * @throws IOException if the file cannot be read
+     */
+    public MappedFile(File file) throws IOException {
+
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+             FileChannel channel = raf.getChannel()) {
+
+            length = channel.size();
+            chunks = new MappedByteBuffer[(int) ((length + CHUNK_MASK) >>> CHUNK_BITS)];
+            for (int c = 0; c < chunks.length; c++) {
+                long start = (long) c << CHUNK_BITS;
+                chunks[c] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(CHUNK_MASK + 1, length - start));
+            }
+        }
+    }
+
+    /**
+     * Getter
+     * @return the length of the file in bytes.
+     */
+    public long length() {
+        return length;
+    }
+
+    public byte getByte(long position) {
+        return chunks[(int) (position >>> CHUNK_BITS)].get((int) (position & CHUNK_MASK));
+    }
+
+    public int getInt(long position) {
+
+        int offset = (int) (position & CHUNK_MASK);
+        if (offset <= CHUNK_MASK - Integer.BYTES + 1) {
+            return chunks[(int) (position >>> CHUNK_BITS)].getInt(offset);
+        }
+        int value = 0;
+        for (int i = 0; i < Integer.BYTES; i++) {
+            value = (value << 8) | (getByte(position + i) & 0xFF);
+        }
+        return value;
+    }
+
+    public long getLong(long position) {
+
+        int offset = (int) (position & CHUNK_MASK);
+        if (offset <= CHUNK_MASK - Long.BYTES + 1) {
+            return chunks[(int) (position >>> CHUNK_BITS)].getLong(offset);
+        }
+        return ((long) getInt(position) << 32) | (getInt(position + Integer.BYTES) & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Share a range of the file without copying it, if the range lies within a single chunk.
+     * @param position position of the first byte
+     * @param count number of bytes
+     * @return a read-only buffer whose index 0 is the first byte, or null if the range crosses two chunks.
+     */
+    public ByteBuffer slice(long position, int count) {
+
+        int start = (int) (position & CHUNK_MASK);
+        if (start + (long) count > CHUNK_MASK + 1) {
+            return null;
+        }
+        ByteBuffer buffer = chunks[(int) (position >>> CHUNK_BITS)].duplicate();
+        buffer.position(start).limit(start + count);
+        return buffer.slice();
+    }
+
+    /**
+     * Copy bytes of the file into the specified array.
+     * @param position position of the first byte
+     * @param bytes array to fill
+     * @param offset first index of the array to fill
+     * @param count number of bytes
+     */
+    public void get(long position, byte[] bytes, int offset, int count) {
+
+        while (count > 0) {
+            MappedByteBuffer chunk = chunks[(int) (position >>> CHUNK_BITS)];
+            int start = (int) (position & CHUNK_MASK);
+            int n = Math.min(count, chunk.limit() - start);
+            chunk.duplicate().position(start).get(bytes, offset, n);
+            position += n;
+            offset += n;
+            count -= n;
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package search;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Finds lines by the positions of the query words, read from the positional postings.
+ * Candidate lines are those containing every word (an intersection of the posting lists),
+ * and for each of them the sorted positions of the words are merged, never the text of the line.
+ *     A phrase matches where the words follow each other in the order of the query.
+ *     A proximity query (NEAR) matches where one occurrence of every word
+ *     lies within the specified distance of the others, in any order.
+ */
+public class PhraseQuery {
+
+    /**
+     * Find the lines containing the words of the query as a phrase.
+     * @param index the lines to search
+     * @param query word(s) separated by space
+     * @return line indexes in ascending order.
+     */
+    public static int[] phrase(Searchable index, String query) {
+
+        List<PostingList> postings = new ArrayList<>();
+        List<Integer> positionsInQuery = new ArrayList<>();
+        Analyzer.Tokens tokens = index.getAnalyzer().tokens().reset(query);
+        while (tokens.next()) {
+            PostingList postingList = index.getPostingList(tokens.term());
+            if (postingList == null) {
+                return new int[0];
+            }
+            postings.add(postingList);
+            positionsInQuery.add(tokens.position());
+        }
+        if (postings.isEmpty()) {
+            return new int[0];
+        }
+        // the offset of each word from the first one, with a gap wherever the analyzer dropped a word
+        int[] offset = new int[postings.size()];
+        for (int i = 0; i < offset.length; i++) {
+            offset[i] = positionsInQuery.get(i) - positionsInQuery.get(0);
+        }
+
+        int[][] positions = new int[postings.size()][1];
+        int[] next = new int[postings.size()];
+        return PostingList.intersect(postings, cursors -> {
+
+            for (int i = 0; i < cursors.length; i++) {
+                positions[i] = cursors[i].positions(positions[i]);
+                next[i] = 0;
+            }
+
+            // the phrase starts at p if word i is at p + offset[i] for every i,
+            // so leapfrog over the positions minus the offsets until all words agree on p
+            int p = positions[0][0];
+            int agreed = 0;
+            int i = 0;
+            while (true) {
+                while (next[i] < cursors[i].freq() && positions[i][next[i]] - offset[i] < p) {
+                    next[i]++;
+                }
+                if (next[i] == cursors[i].freq()) {
+                    return false;
+                }
+                if (positions[i][next[i]] - offset[i] == p) {
+                    if (++agreed == cursors.length) {
+                        return true;
+                    }
+                } else {
+                    p = positions[i][next[i]] - offset[i];
+                    agreed = 1;
+                }
+                i = (i + 1) % cursors.length;
+            }
+        });
+    }
+
+    /**
+     * Find the lines in which every word of the query occurs
+     * within the specified distance of the others.
+     * @param index the lines to search
+     * @param query word(s) separated by space
+     * @param distance the largest difference of positions allowed, 1 for adjacent words
+     * @return line indexes in ascending order.
+     */
+    public static int[] near(Searchable index, String query, int distance) {
+
+        Set<String> words = new LinkedHashSet<>(index.getAnalyzer().terms(query));
+        List<PostingList> postings = new ArrayList<>();
+        for (String word : words) {
+            PostingList postingList = index.getPostingList(word);
+            if (postingList == null) {
+                return new int[0];
+            }
+            postings.add(postingList);
+        }
+
+        int[][] positions = new int[postings.size()][1];
+        int[] next = new int[postings.size()];
+        return PostingList.intersect(postings, cursors -> {
+
+            for (int i = 0; i < cursors.length; i++) {
+                positions[i] = cursors[i].positions(positions[i]);
+                next[i] = 0;
+            }
+
+            // slide a window over one occurrence of each word, always moving its first occurrence
+            while (true) {
+                int first = 0;
+                int max = Integer.MIN_VALUE;
+                for (int i = 0; i < cursors.length; i++) {
+                    int position = positions[i][next[i]];
+                    if (position < positions[first][next[first]]) {
+                        first = i;
+                    }
+                    max = Math.max(max, position);
+                }
+                if (max - positions[first][next[first]] <= distance) {
+                    return true;
+                }
+                if (++next[first] == cursors[first].freq()) {
+                    return false;
+                }
+            }
+        });
+    }
+}
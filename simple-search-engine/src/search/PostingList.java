@@ -0,0 +1,452 @@
+package search;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * A compressed list of the ascending line indexes in which a word occurs,
+ * each with the number of times the word occurs in the line (its frequency).
+ * Each index is stored as the gap to the previous one, shifted left by one bit
+ * whose value tells whether the frequency is 1; any other frequency follows the gap.
+ * Then come the positions of the word in the line (the index of the word among
+ * the words of the line), the first one as it is and the others as gaps.
+ * All numbers are stored as a variable number of bytes (7 bits per byte, the high bit set
+ * on all but the last byte), so most postings take two bytes.
+ * The postings are split into blocks of BLOCK_SIZE, and a skip table keeps the last index
+ * and the byte offset of every block, so a Cursor can jump over whole blocks without decoding them.
+ * A list read from a mapped file is decoded where it lies in the mapping, so reading it
+ * only touches the bytes its cursors decode; only its skip table is copied to the heap.
+ */
+public class PostingList {
+
+    /**
+     * Returned by a Cursor once the list is exhausted.
+     */
+    public static final int END = Integer.MAX_VALUE;
+
+    static final int BLOCK_SIZE = 128;
+
+    private byte[] data = new byte[8];
+    private ByteBuffer mapped;
+    private int length;
+    private int[] blockLast = new int[1];
+    private int[] blockOffset = new int[1];
+    private int blocks;
+    private int size;
+    private int last = -1;
+    private int lastDelta;
+    private int lastFreq;
+    private int[] lastPositions = new int[1];
+    private int lastStart;
+    private int maxFreq;
+
+    /**
+     * Append an occurrence of the word to the list.
+     * Occurrences must be added in ascending order of line and position,
+     * and another occurrence in the last line is added to the last posting,
+     * which is then encoded again.
+     * @param index a line index
+     * @param position the position of the word in the line
+     */
+    public void add(int index, int position) {
+
+        if (index < last || (index == last && position <= lastPositions[lastFreq - 1])) {
+            return;
+        }
+
+        if (index == last) {
+            length = lastStart;
+            if (lastFreq == lastPositions.length) {
+                lastPositions = Arrays.copyOf(lastPositions, lastFreq << 1);
+            }
+            lastPositions[lastFreq++] = position;
+        } else {
+            if (size % BLOCK_SIZE == 0) {
+                if (blocks == blockLast.length) {
+                    blockLast = Arrays.copyOf(blockLast, blocks << 1);
+                    blockOffset = Arrays.copyOf(blockOffset, blocks << 1);
+                }
+                blockOffset[blocks++] = length;
+            }
+            lastDelta = index - last;
+            lastStart = length;
+            blockLast[blocks - 1] = index;
+            last = index;
+            size++;
+            lastPositions[0] = position;
+            lastFreq = 1;
+        }
+
+        if (lastFreq == 1) {
+            writeVarInt(lastDelta << 1 | 1);
+        } else {
+            writeVarInt(lastDelta << 1);
+            writeVarInt(lastFreq);
+        }
+        writeVarInt(lastPositions[0]);
+        for (int i = 1; i < lastFreq; i++) {
+            writeVarInt(lastPositions[i] - lastPositions[i - 1]);
+        }
+        maxFreq = Math.max(maxFreq, lastFreq);
+    }
+
+    /**
+     * Append all postings of another list, shifting their line indexes by the specified offset.
+     * @param other a posting list whose indexes, once shifted, follow the ones of this list
+     * @param offset a number added to every index of the other list
+     */
+    public void append(PostingList other, int offset) {
+
+        Cursor cursor = other.cursor();
+        int[] positions = new int[1];
+        for (int doc = cursor.next(); doc != END; doc = cursor.next()) {
+            positions = cursor.positions(positions);
+            for (int i = 0; i < cursor.freq(); i++) {
+                add(doc + offset, positions[i]);
+            }
+        }
+    }
+
+    private void writeVarInt(int value) {
+
+        if (length + 10 > data.length) {
+            data = Arrays.copyOf(data, Math.max(data.length << 1, length + 10));
+        }
+        while ((value & ~0x7F) != 0) {
+            data[length++] = (byte) (value | 0x80);
+            value >>>= 7;
+        }
+        data[length++] = (byte) value;
+    }
+
+    /**
+     * Getter
+     * @return the number of line indexes.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Getter
+     * @return the highest frequency of the word in any line.
+     */
+    public int maxFreq() {
+        return maxFreq;
+    }
+
+    /**
+     * Getter
+     * @return the number of bytes used by the encoded postings.
+     */
+    public int bytes() {
+        return length;
+    }
+
+    /**
+     * Decode the whole list.
+     * @return the line indexes in ascending order.
+     */
+    public int[] toArray() {
+
+        int[] indexes = new int[size()];
+        Cursor cursor = cursor();
+        for (int i = 0; i < indexes.length; i++) {
+            indexes[i] = cursor.next();
+        }
+        return indexes;
+    }
+
+    /**
+     * Write the list as it is encoded:
+     * int size, int number of blocks, int number of bytes, int highest frequency,
+     * the last index and the byte offset of every block, then the bytes.
+     * @param out an output
+     * @return the number of bytes written.
+     * @throws IOException if the output cannot be written
+     */
+    public long write(DataOutput out) throws IOException {
+
+        out.writeInt(size);
+        out.writeInt(blocks);
+        out.writeInt(length);
+        out.writeInt(maxFreq);
+        for (int i = 0; i < blocks; i++) {
+            out.writeInt(blockLast[i]);
+        }
+        for (int i = 0; i < blocks; i++) {
+            out.writeInt(blockOffset[i]);
+        }
+        if (mapped != null) {
+            byte[] bytes = new byte[length];
+            mapped.duplicate().get(bytes);
+            out.write(bytes);
+        } else {
+            out.write(data, 0, length);
+        }
+        return 16L + 8L * blocks + length;
+    }
+
+    /**
+     * Read a list as written by write(). The list is only meant to be read, not added to.
+     * Its postings stay in the mapping, unless they cross two chunks of the file,
+     * which only the lists straddling a 1GB boundary do; those are copied.
+     * @param file a mapped file
+     * @param position position of the list in the file
+     * @return a posting list.
+     */
+    public static PostingList read(MappedFile file, long position) {
+
+        PostingList postingList = new PostingList();
+        postingList.size = file.getInt(position);
+        postingList.blocks = file.getInt(position + 4);
+        postingList.length = file.getInt(position + 8);
+        postingList.maxFreq = file.getInt(position + 12);
+        position += 16;
+
+        postingList.blockLast = new int[Math.max(postingList.blocks, 1)];
+        postingList.blockOffset = new int[Math.max(postingList.blocks, 1)];
+        for (int i = 0; i < postingList.blocks; i++, position += 4) {
+            postingList.blockLast[i] = file.getInt(position);
+        }
+        for (int i = 0; i < postingList.blocks; i++, position += 4) {
+            postingList.blockOffset[i] = file.getInt(position);
+        }
+        postingList.mapped = file.slice(position, postingList.length);
+        if (postingList.mapped == null) {
+            postingList.data = new byte[postingList.length];
+            file.get(position, postingList.data, 0, postingList.length);
+        }
+        postingList.last = postingList.blocks == 0 ? -1 : postingList.blockLast[postingList.blocks - 1];
+        return postingList;
+    }
+
+    public Cursor cursor() {
+        return new BlockCursor();
+    }
+
+    /**
+     * Reads a PostingList forward, one line index at a time.
+     * A new cursor is positioned before the first index.
+     */
+    public interface Cursor {
+
+        /**
+         * Getter
+         * @return the list read by this cursor.
+         */
+        PostingList list();
+
+        /**
+         * Getter
+         * @return the current line index, -1 before the first one, or END.
+         */
+        int doc();
+
+        /**
+         * Getter
+         * @return the frequency of the word in the current line.
+         */
+        int freq();
+
+        /**
+         * Move to the next line index.
+         * @return the line index, or END if there is none.
+         */
+        int next();
+
+        /**
+         * Decode the positions of the word in the current line.
+         * @param buffer an array to fill, replaced by a larger one if it is too small
+         * @return the array holding freq() ascending positions.
+         */
+        int[] positions(int[] buffer);
+
+        /**
+         * Move to the first line index which is not below the target.
+         * @param target a line index
+         * @return the line index, or END if there is none.
+         */
+        int advance(int target);
+    }
+
+    /**
+     * Decodes the postings of this list.
+     */
+    private class BlockCursor implements Cursor {
+
+        private int ordinal;
+        private int offset;
+        private int doc = -1;
+        private int freq;
+        private int positionsOffset;
+
+        @Override
+        public PostingList list() {
+            return PostingList.this;
+        }
+
+        @Override
+        public int doc() {
+            return doc;
+        }
+
+        @Override
+        public int freq() {
+            return freq;
+        }
+
+        @Override
+        public int next() {
+
+            if (ordinal == size) {
+                return doc = END;
+            }
+
+            int code = readVarInt();
+            freq = (code & 1) != 0 ? 1 : readVarInt();
+            positionsOffset = offset;
+            for (int i = 0; i < freq; i++) {
+                readVarInt();
+            }
+            ordinal++;
+            return doc += code >>> 1;
+        }
+
+        @Override
+        public int[] positions(int[] buffer) {
+
+            if (buffer.length < freq) {
+                buffer = new int[Math.max(freq, buffer.length << 1)];
+            }
+            int next = offset;
+            offset = positionsOffset;
+            int position = 0;
+            for (int i = 0; i < freq; i++) {
+                position += readVarInt();
+                buffer[i] = position;
+            }
+            offset = next;
+            return buffer;
+        }
+
+        private int readVarInt() {
+
+            int value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = mapped == null ? data[offset++] : mapped.get(offset++);
+                value |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            return value;
+        }
+
+        /**
+         * Move to the first line index which is not below the target.
+         * Whole blocks ending below the target are skipped by galloping over the skip table,
+         * and only the block which may hold the target is decoded.
+         */
+        @Override
+        public int advance(int target) {
+
+            if (doc >= target) {
+                return doc;
+            }
+            if (size == 0 || blockLast[blocks - 1] < target) {
+                ordinal = size;
+                return doc = END;
+            }
+
+            int block = ordinal == 0 ? 0 : (ordinal - 1) / BLOCK_SIZE;
+            if (blockLast[block] < target) {
+                // blockLast[low] < target <= blockLast[high]
+                int low = block;
+                int high = block + 1;
+                int step = 1;
+                while (blockLast[high] < target) {
+                    low = high;
+                    step <<= 1;
+                    high = Math.min(low + step, blocks - 1);
+                }
+                while (high - low > 1) {
+                    int mid = (low + high) >>> 1;
+                    if (blockLast[mid] < target) {
+                        low = mid;
+                    } else {
+                        high = mid;
+                    }
+                }
+
+                ordinal = high * BLOCK_SIZE;
+                offset = blockOffset[high];
+                doc = blockLast[high - 1];
+            }
+
+            while (doc < target) {
+                next();
+            }
+            return doc;
+        }
+    }
+
+    /**
+     * Find the line indexes contained in all of the specified lists.
+     * The shortest list leads, and every other list only advances to its candidates,
+     * so long lists are mostly skipped block by block.
+     * @param lists posting lists
+     * @return the common line indexes in ascending order.
+     */
+    public static int[] intersect(List<PostingList> lists) {
+        return intersect(lists, null);
+    }
+
+    /**
+     * Find the line indexes contained in all of the specified lists
+     * and accepted by the specified filter.
+     * @param lists posting lists
+     * @param filter a test of the cursors of the lists, in the order of the lists,
+     *               all positioned on a common line; or null to accept every line
+     * @return the accepted line indexes in ascending order.
+     */
+    public static int[] intersect(List<PostingList> lists, Predicate<Cursor[]> filter) {
+
+        if (lists.isEmpty()) {
+            return new int[0];
+        }
+
+        Cursor[] byList = new Cursor[lists.size()];
+        for (int i = 0; i < byList.length; i++) {
+            byList[i] = lists.get(i).cursor();
+        }
+        Cursor[] cursors = byList.clone();
+        Arrays.sort(cursors, Comparator.comparingInt(cursor -> cursor.list().size()));
+
+        int[] result = new int[cursors[0].list().size()];
+        int count = 0;
+
+        int doc = cursors[0].next();
+        candidates:
+        while (doc != END) {
+            for (int i = 1; i < cursors.length; i++) {
+                int other = cursors[i].advance(doc);
+                if (other != doc) {
+                    doc = other == END ? END : cursors[0].advance(other);
+                    continue candidates;
+                }
+            }
+            if (filter == null || filter.test(byList)) {
+                result[count++] = doc;
+            }
+            doc = cursors[0].next();
+        }
+
+        return Arrays.copyOf(result, count);
+    }
+}
@@ -0,0 +1,218 @@
+package search;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.function.Supplier;
+
+/**
+ * Caches the results of queries in front of another Searchable.
+ * A query is normalized before it is looked up, so "Erick KATIE" and "katie, erick"
+ * share an entry for the strategies where the order of words does not matter.
+ * The least recently used entries are evicted once there are more than the
+ * maximum number of entries, or once the results together take more than the maximum bytes.
+ * All entries are dropped as soon as the generation of the index changes,
+ * i.e. once lines have been added, since any result may then be incomplete.
+ */
+public class QueryCache implements Searchable {
+
+    private final Searchable index;
+    private final int maxEntries;
+    private final long maxBytes;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long generation;
+    private long bytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long invalidations;
+
+    private static class Entry {
+
+        private final Object result;
+        private final long bytes;
+
+        Entry(Object result, long bytes) {
+            this.result = result;
+            this.bytes = bytes;
+        }
+    }
+
+    /**
+     * Wrap the specified index.
+     * @param index the lines to search
+     * @param maxEntries the maximum number of cached queries
+     * @param maxBytes the maximum memory taken by cached results
+     */
+    public QueryCache(Searchable index, int maxEntries, long maxBytes) {
+
+        this.index = index;
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+        this.generation = index.getGeneration();
+    }
+
+    @Override
+    public Analyzer getAnalyzer() {
+        return index.getAnalyzer();
+    }
+
+    @Override
+    public long getGeneration() {
+        return index.getGeneration();
+    }
+
+    @Override
+    public int size() {
+        return index.size();
+    }
+
+    @Override
+    public String getLine(int i) {
+        return index.getLine(i);
+    }
+
+    @Override
+    public int getLength(int i) {
+        return index.getLength(i);
+    }
+
+    @Override
+    public long getTotalLength() {
+        return index.getTotalLength();
+    }
+
+    @Override
+    public PostingList getPostingList(String word) {
+        return index.getPostingList(word);
+    }
+
+    @Override
+    public List<String> getFuzzyTerms(String word, int distance) {
+        return index.getFuzzyTerms(word, distance);
+    }
+
+    @Override
+    public RoaringBitmap findAll(String query) {
+        return cached("ALL " + wordSet(query), () -> index.findAll(query));
+    }
+
+    @Override
+    public RoaringBitmap findAny(String query) {
+        return cached("ANY " + wordSet(query), () -> index.findAny(query));
+    }
+
+    @Override
+    public RoaringBitmap findNone(String query) {
+        return cached("NONE " + wordSet(query), () -> index.findNone(query));
+    }
+
+    @Override
+    public RoaringBitmap findPhrase(String query) {
+        return cached("PHRASE " + query.toLowerCase(), () -> index.findPhrase(query));
+    }
+
+    @Override
+    public RoaringBitmap findNear(String query, int distance) {
+        return cached("NEAR/" + distance + " " + wordSet(query), () -> index.findNear(query, distance));
+    }
+
+    @Override
+    public RoaringBitmap findFuzzy(String query, int distance) {
+        return cached("FUZZY/" + distance + " " + wordSet(query), () -> index.findFuzzy(query, distance));
+    }
+
+    @Override
+    public int[] findTop(String query, int k) {
+        return cached("TOP/" + k + " " + wordSet(query), () -> index.findTop(query, k));
+    }
+
+    /**
+     * Normalize a query whose order and repetition of words do not matter.
+     * @param query word(s) separated by space
+     * @return the distinct analyzed words in sorted order.
+     */
+    private String wordSet(String query) {
+        return String.join(" ", new TreeSet<>(index.getAnalyzer().terms(query)));
+    }
+
+    /**
+     * Look the specified key up, or compute and cache its result.
+     * The result is computed outside of the lock, so queries missing the cache run in parallel,
+     * and it is only cached if no lines have been added in the meantime.
+     * @param key a strategy followed by a normalized query
+     * @param query computes the result on a miss
+     * @return the result.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> T cached(String key, Supplier<T> query) {
+
+        long queryGeneration = index.getGeneration();
+        synchronized (this) {
+            invalidateIfChanged(queryGeneration);
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                hits++;
+                return (T) entry.result;
+            }
+            misses++;
+        }
+
+        T result = query.get();
+        long size = key.length() * 2L + (result instanceof RoaringBitmap
+                ? ((RoaringBitmap) result).bytes()
+                : (long) ((int[]) result).length * Integer.BYTES);
+
+        synchronized (this) {
+            invalidateIfChanged(index.getGeneration());
+            if (generation == queryGeneration) {
+                Entry previous = entries.put(key, new Entry(result, size));
+                bytes += size - (previous == null ? 0 : previous.bytes);
+                evict();
+            }
+        }
+        return result;
+    }
+
+    private void invalidateIfChanged(long current) {
+
+        if (generation != current) {
+            if (!entries.isEmpty()) {
+                invalidations++;
+            }
+            entries.clear();
+            bytes = 0;
+            generation = current;
+        }
+    }
+
+    /**
+     * Drop the least recently used entries, but never the last one,
+     * until both the number of entries and their bytes are within bounds.
+     */
+    private void evict() {
+
+        Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+        while (entries.size() > 1 && (entries.size() > maxEntries || bytes > maxBytes)) {
+            bytes -= eldest.next().getValue().bytes;
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    /**
+     * Getter
+     * @return the hit, miss, eviction and invalidation counts and the current size.
+     */
+    public synchronized String getStatistics() {
+
+        long lookups = hits + misses;
+        return String.format("Entries: %d (%d KB)%nHits: %d, misses: %d, hit rate: %.1f%%%n"
+                        + "Evictions: %d, invalidations: %d",
+                entries.size(), bytes / 1024, hits, misses,
+                lookups == 0 ? 0.0 : 100.0 * hits / lookups, evictions, invalidations);
+    }
+}
@@ -0,0 +1,272 @@
+package search;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.Scanner;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serves queries to many clients at once over a local socket, while lines are still being added.
+ * Every connection gets its own thread, and queries run on the latest snapshot of a LiveIndex
+ * through a QueryCache, so readers never wait for writers. Added lines become searchable
+ * at the next refresh, which happens every REFRESH_INTERVAL ms.
+ *
+ * The protocol is line based (UTF-8). Each request is a single line:
+ *     ALL|ANY|NONE|TOP|PHRASE|NEAR|FUZZY words   search with the strategy
+ *     ADD text                                   add a line
+ *     REFRESH                                    make the added lines searchable now
+ *     STATS                                      show the query cache statistics
+ * and each response is a line with a number n, followed by n lines,
+ * or a single line starting with ERROR.
+ *
+ * Start with: Main --serve [--port 4242] [--data file] [--threads N]
+ */
+public class QueryServer {
+
+    private static final int DEFAULT_PORT = 4242;
+    private static final long REFRESH_INTERVAL = 100;
+
+    private final LiveIndex liveIndex;
+    private final QueryCache queryCache;
+    private final ServerSocket serverSocket;
+    private final ExecutorService connections = Executors.newCachedThreadPool();
+    private final Set<Socket> clients = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService refresher = Executors.newSingleThreadScheduledExecutor();
+
+    /**
+     * Listen on the specified port of the loopback address.
+     * @param liveIndex the index to search and add to
+     * @param port a port, or 0 for any free port
+     * @throws IOException if the port cannot be bound
+     */
+    public QueryServer(LiveIndex liveIndex, int port) throws IOException {
+
+        this.liveIndex = liveIndex;
+        this.queryCache = new QueryCache(liveIndex, Application.CACHE_ENTRIES, Application.CACHE_BYTES);
+        this.serverSocket = new ServerSocket(port, 128, InetAddress.getLoopbackAddress());
+    }
+
+    /**
+     * Run this method to start the server from the terminal. It stops once Enter is pressed.
+     * @param args arguments passed from terminal.
+     */
+    public static void run(String[] args) {
+
+        File inputFile = Application.parseArgs(args);
+        Searchable base = Application.openIndex(inputFile);
+        if (base == null) {
+            return;
+        }
+
+        int port = DEFAULT_PORT;
+        for (int i = 0; i < args.length - 1; i++) {
+            if (args[i].equals("--port")) {
+                try {
+                    port = Integer.parseInt(args[i + 1]);
+                } catch (NumberFormatException e) {
+                    System.out.printf("\"%s\" isn't a valid port. It's skipped.%n", args[i + 1]);
+                }
+            }
+        }
+
+        try {
+            QueryServer server = new QueryServer(new LiveIndex(base), port);
+            server.start();
+            System.out.printf("Serving queries on localhost:%d. Press Enter to stop.%n", server.getPort());
+            new Scanner(System.in).nextLine();
+            server.close();
+            System.out.println("Bye!");
+        } catch (IOException e) {
+            System.out.printf("Error listening on port %d%n", port);
+        }
+    }
+
+    /**
+     * Getter
+     * @return the port the server listens on.
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Getter
+     * @return the cache in front of the index.
+     */
+    public QueryCache getQueryCache() {
+        return queryCache;
+    }
+
+    /**
+     * Start accepting connections and refreshing the index.
+     */
+    public void start() {
+
+        refresher.scheduleWithFixedDelay(liveIndex::refresh, REFRESH_INTERVAL, REFRESH_INTERVAL, TimeUnit.MILLISECONDS);
+        Thread acceptor = new Thread(this::accept, "query-server-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    /**
+     * Stop accepting connections and close the open ones.
+     * Interrupting a thread doesn't wake it from a blocked read,
+     * so the sockets are closed, which makes their reads fail.
+     * @throws IOException if the server socket cannot be closed
+     */
+    public void close() throws IOException {
+
+        serverSocket.close();
+        refresher.shutdownNow();
+        connections.shutdownNow();
+        for (Socket socket : clients) {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // it is closed either way
+            }
+        }
+    }
+
+    private void accept() {
+
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                clients.add(socket);
+                if (serverSocket.isClosed()) {
+                    // close() may have missed it
+                    clients.remove(socket);
+                    socket.close();
+                    return;
+                }
+                connections.submit(() -> serve(socket));
+            } catch (SocketException | RejectedExecutionException e) {
+                return;
+            } catch (IOException e) {
+                System.out.println("Error accepting a connection");
+            }
+        }
+    }
+
+    /**
+     * Answer the requests of a single connection until the client closes it.
+     * @param socket a client connection
+     */
+    private void serve(Socket socket) {
+
+        try (socket;
+             BufferedReader in = new BufferedReader(
+                     new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             Writer out = new BufferedWriter(
+                     new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8))) {
+
+            String request = in.readLine();
+            while (request != null) {
+                respond(request, out);
+                out.flush();
+                request = in.readLine();
+            }
+        } catch (IOException e) {
+            // the client went away
+        } finally {
+            clients.remove(socket);
+        }
+    }
+
+    /**
+     * Answer a single request.
+     * @param request a request line
+     * @param out the connection's output
+     * @throws IOException if the response cannot be written
+     */
+    private void respond(String request, Writer out) throws IOException {
+
+        int space = request.indexOf(' ');
+        String command = (space == -1 ? request : request.substring(0, space)).toUpperCase();
+        String argument = space == -1 ? "" : request.substring(space + 1);
+
+        switch (command) {
+            case "ALL":
+                writeLines(queryCache.findAll(argument), out);
+                break;
+            case "ANY":
+                writeLines(queryCache.findAny(argument), out);
+                break;
+            case "NONE":
+                writeLines(queryCache.findNone(argument), out);
+                break;
+            case "PHRASE":
+                writeLines(queryCache.findPhrase(argument), out);
+                break;
+            case "NEAR":
+                writeLines(queryCache.findNear(argument, Application.NEAR_DISTANCE), out);
+                break;
+            case "FUZZY":
+                writeLines(queryCache.findFuzzy(argument, Application.FUZZY_DISTANCE), out);
+                break;
+            case "TOP":
+                int[] top = queryCache.findTop(argument, Application.TOP_K);
+                out.write(top.length + "\n");
+                for (int index : top) {
+                    out.write(queryCache.getLine(index));
+                    out.write('\n');
+                }
+                break;
+            case "ADD":
+                liveIndex.add(argument);
+                out.write("0\n");
+                break;
+            case "REFRESH":
+                liveIndex.refresh();
+                out.write("0\n");
+                break;
+            case "STATS":
+                String[] statistics = queryCache.getStatistics().split("\\R");
+                out.write(statistics.length + "\n");
+                for (String line : statistics) {
+                    out.write(line);
+                    out.write('\n');
+                }
+                break;
+            default:
+                out.write("ERROR Incorrect command: " + command + "\n");
+        }
+    }
+
+    private void writeLines(RoaringBitmap matches, Writer out) throws IOException {
+
+        out.write(matches.cardinality() + "\n");
+        Snapshot snapshot = liveIndex.snapshot();
+        IOException[] error = new IOException[1];
+        matches.forEach(index -> {
+            if (error[0] == null) {
+                try {
+                    out.write(snapshot.getLine(index));
+                    out.write('\n');
+                } catch (IOException e) {
+                    error[0] = e;
+                }
+            }
+        });
+        if (error[0] != null) {
+            throw error[0];
+        }
+    }
+}
@@ -0,0 +1,733 @@
+package search;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * A compressed set of line indexes (Roaring bitmap).
+ * The indexes are grouped by their high 16 bits, and each group of up to 65536
+ * low 16 bits is kept in the smallest of three containers:
+ *     an array of the sorted low bits, while there are at most ARRAY_LIMIT of them,
+ *     a bitmap of 65536 bits, once there are more,
+ *     a list of runs (start and length), for long stretches of consecutive indexes.
+ * AND, OR and AND NOT work container by container, skipping the groups
+ * which only one side has, so their cost depends on the data, not on the number of lines.
+ */
+public class RoaringBitmap {
+
+    private static final int ARRAY_LIMIT = 4096;
+    private static final int BITMAP_WORDS = 1 << 10;
+    private static final int BITMAP_BYTES = BITMAP_WORDS * Long.BYTES;
+
+    private char[] keys = new char[4];
+    private Container[] containers = new Container[4];
+    private int size;
+
+    /**
+     * Create a bitmap of the line indexes of the specified posting list.
+     * @param postingList a posting list
+     * @return a bitmap.
+     */
+    public static RoaringBitmap of(PostingList postingList) {
+
+        RoaringBitmap bitmap = new RoaringBitmap();
+        PostingList.Cursor cursor = postingList.cursor();
+        for (int doc = cursor.next(); doc != PostingList.END; doc = cursor.next()) {
+            bitmap.add(doc);
+        }
+        return bitmap;
+    }
+
+    /**
+     * Create a bitmap of the specified values.
+     * @param values non-negative values in ascending order
+     * @return a bitmap.
+     */
+    public static RoaringBitmap of(int[] values) {
+
+        RoaringBitmap bitmap = new RoaringBitmap();
+        for (int value : values) {
+            bitmap.add(value);
+        }
+        return bitmap;
+    }
+
+    /**
+     * Create a bitmap of all values of a range, made of run containers.
+     * @param from the first value, not negative
+     * @param to the value after the last
+     * @return a bitmap.
+     */
+    public static RoaringBitmap range(int from, int to) {
+
+        RoaringBitmap bitmap = new RoaringBitmap();
+        if (from >= to) {
+            return bitmap;
+        }
+        for (int high = from >>> 16; high <= (to - 1) >>> 16; high++) {
+            int start = Math.max(from, high << 16) & 0xFFFF;
+            int end = Math.min(to - 1, (high << 16) | 0xFFFF) & 0xFFFF;
+            bitmap.append((char) high, new RunContainer(new char[] {(char) start, (char) (end - start)}, 1));
+        }
+        return bitmap;
+    }
+
+    private void append(char key, Container container) {
+
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size << 1);
+            containers = Arrays.copyOf(containers, size << 1);
+        }
+        keys[size] = key;
+        containers[size++] = container;
+    }
+
+    /**
+     * Add a value. Adding values in ascending order only ever touches the last container.
+     * @param value a non-negative value
+     */
+    public void add(int value) {
+
+        char high = (char) (value >>> 16);
+        char low = (char) value;
+        if (size > 0 && keys[size - 1] == high) {
+            containers[size - 1] = containers[size - 1].add(low);
+            return;
+        }
+        if (size == 0 || keys[size - 1] < high) {
+            append(high, new ArrayContainer().add(low));
+            return;
+        }
+
+        int i = Arrays.binarySearch(keys, 0, size, high);
+        if (i >= 0) {
+            containers[i] = containers[i].add(low);
+            return;
+        }
+        i = -i - 1;
+        append(high, null);
+        System.arraycopy(keys, i, keys, i + 1, size - 1 - i);
+        System.arraycopy(containers, i, containers, i + 1, size - 1 - i);
+        keys[i] = high;
+        containers[i] = new ArrayContainer().add(low);
+    }
+
+    public boolean contains(int value) {
+
+        int i = Arrays.binarySearch(keys, 0, size, (char) (value >>> 16));
+        return i >= 0 && containers[i].contains((char) value);
+    }
+
+    /**
+     * Getter
+     * @return the number of values.
+     */
+    public int cardinality() {
+
+        int cardinality = 0;
+        for (int i = 0; i < size; i++) {
+            cardinality += containers[i].cardinality();
+        }
+        return cardinality;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Find the values contained in both bitmaps.
+     * @param other a bitmap
+     * @return a new bitmap.
+     */
+    public RoaringBitmap and(RoaringBitmap other) {
+
+        RoaringBitmap result = new RoaringBitmap();
+        int i = 0;
+        int j = 0;
+        while (i < size && j < other.size) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                result.appendIfNotEmpty(keys[i], and(containers[i++], other.containers[j++]));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Find the values contained in either bitmap.
+     * @param other a bitmap
+     * @return a new bitmap.
+     */
+    public RoaringBitmap or(RoaringBitmap other) {
+
+        RoaringBitmap result = new RoaringBitmap();
+        int i = 0;
+        int j = 0;
+        while (i < size || j < other.size) {
+            if (j == other.size || (i < size && keys[i] < other.keys[j])) {
+                result.append(keys[i], containers[i++]);
+            } else if (i == size || keys[i] > other.keys[j]) {
+                result.append(other.keys[j], other.containers[j++]);
+            } else {
+                result.append(keys[i], or(containers[i++], other.containers[j++]));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Find the values contained in this bitmap but not in the other one.
+     * @param other a bitmap
+     * @return a new bitmap.
+     */
+    public RoaringBitmap andNot(RoaringBitmap other) {
+
+        RoaringBitmap result = new RoaringBitmap();
+        int j = 0;
+        for (int i = 0; i < size; i++) {
+            while (j < other.size && other.keys[j] < keys[i]) {
+                j++;
+            }
+            if (j < other.size && other.keys[j] == keys[i]) {
+                result.appendIfNotEmpty(keys[i], andNot(containers[i], other.containers[j]));
+            } else {
+                result.append(keys[i], containers[i]);
+            }
+        }
+        return result;
+    }
+
+    private void appendIfNotEmpty(char key, Container container) {
+
+        if (container != null) {
+            append(key, container);
+        }
+    }
+
+    /**
+     * Turn every container into a run container where that takes less memory.
+     * @return this bitmap.
+     */
+    public RoaringBitmap runOptimize() {
+
+        for (int i = 0; i < size; i++) {
+            if (!(containers[i] instanceof RunContainer)) {
+                long[] words = containers[i].toWords();
+                int runs = countRuns(words);
+                if (RunContainer.bytes(runs) < containers[i].bytes()) {
+                    containers[i] = RunContainer.of(words, runs);
+                }
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Call the specified action with every value in ascending order.
+     * @param action an action
+     */
+    public void forEach(IntConsumer action) {
+
+        for (int i = 0; i < size; i++) {
+            containers[i].forEach(keys[i] << 16, action);
+        }
+    }
+
+    public int[] toArray() {
+
+        int[] values = new int[cardinality()];
+        int[] count = {0};
+        forEach(value -> values[count[0]++] = value);
+        return values;
+    }
+
+    /**
+     * Getter
+     * @return the approximate memory taken by the containers, in bytes.
+     */
+    public long bytes() {
+
+        long bytes = 0;
+        for (int i = 0; i < size; i++) {
+            bytes += containers[i].bytes();
+        }
+        return bytes;
+    }
+
+    private static Container and(Container a, Container b) {
+
+        if (a instanceof ArrayContainer && b instanceof ArrayContainer) {
+            return ((ArrayContainer) a).and((ArrayContainer) b);
+        }
+        if (a instanceof ArrayContainer) {
+            return ((ArrayContainer) a).filter(b, true);
+        }
+        if (b instanceof ArrayContainer) {
+            return ((ArrayContainer) b).filter(a, true);
+        }
+        long[] words = a.toWords();
+        long[] others = b.toWords();
+        for (int k = 0; k < BITMAP_WORDS; k++) {
+            words[k] &= others[k];
+        }
+        return fromWords(words);
+    }
+
+    private static Container or(Container a, Container b) {
+
+        if (a instanceof ArrayContainer && b instanceof ArrayContainer) {
+            return ((ArrayContainer) a).or((ArrayContainer) b);
+        }
+        long[] words = a.toWords();
+        b.orInto(words);
+        return fromWords(words);
+    }
+
+    private static Container andNot(Container a, Container b) {
+
+        if (a instanceof ArrayContainer) {
+            return ((ArrayContainer) a).filter(b, false);
+        }
+        long[] words = a.toWords();
+        b.clearFrom(words);
+        return fromWords(words);
+    }
+
+    /**
+     * Pick the container for the specified bits.
+     * @param words 65536 bits
+     * @return an array or a bitmap container, or null if no bit is set.
+     */
+    private static Container fromWords(long[] words) {
+
+        int cardinality = 0;
+        for (long word : words) {
+            cardinality += Long.bitCount(word);
+        }
+        if (cardinality == 0) {
+            return null;
+        }
+        if (cardinality > ARRAY_LIMIT) {
+            return new BitmapContainer(words, cardinality);
+        }
+
+        char[] values = new char[cardinality];
+        int count = 0;
+        for (int k = 0; k < BITMAP_WORDS; k++) {
+            long word = words[k];
+            while (word != 0) {
+                values[count++] = (char) (k << 6 | Long.numberOfTrailingZeros(word));
+                word &= word - 1;
+            }
+        }
+        return new ArrayContainer(values, cardinality);
+    }
+
+    /**
+     * Count the runs of set bits: a set bit whose previous bit is clear starts a run.
+     */
+    private static int countRuns(long[] words) {
+
+        int runs = 0;
+        long carry = 0;
+        for (long word : words) {
+            runs += Long.bitCount(word & ~(word << 1 | carry));
+            carry = word >>> 63;
+        }
+        return runs;
+    }
+
+    /**
+     * A group of up to 65536 values sharing their high 16 bits.
+     */
+    private abstract static class Container {
+
+        /**
+         * Add a low value.
+         * @return this container, or another kind of container if this one no longer fits.
+         */
+        abstract Container add(char value);
+
+        abstract boolean contains(char value);
+
+        abstract int cardinality();
+
+        abstract int bytes();
+
+        /**
+         * @return a new array of the 65536 bits of this container.
+         */
+        abstract long[] toWords();
+
+        abstract void orInto(long[] words);
+
+        abstract void clearFrom(long[] words);
+
+        abstract void forEach(int high, IntConsumer action);
+    }
+
+    private static class ArrayContainer extends Container {
+
+        private char[] values;
+        private int cardinality;
+
+        ArrayContainer() {
+            this(new char[4], 0);
+        }
+
+        ArrayContainer(char[] values, int cardinality) {
+            this.values = values;
+            this.cardinality = cardinality;
+        }
+
+        @Override
+        Container add(char value) {
+
+            if (cardinality > 0 && values[cardinality - 1] >= value) {
+                int i = Arrays.binarySearch(values, 0, cardinality, value);
+                if (i >= 0) {
+                    return this;
+                }
+                if (cardinality == ARRAY_LIMIT) {
+                    return new BitmapContainer(toWords(), cardinality).add(value);
+                }
+                i = -i - 1;
+                grow();
+                System.arraycopy(values, i, values, i + 1, cardinality - i);
+                values[i] = value;
+                cardinality++;
+                return this;
+            }
+            if (cardinality == ARRAY_LIMIT) {
+                return new BitmapContainer(toWords(), cardinality).add(value);
+            }
+            grow();
+            values[cardinality++] = value;
+            return this;
+        }
+
+        private void grow() {
+
+            if (cardinality == values.length) {
+                values = Arrays.copyOf(values, Math.min(cardinality << 1, ARRAY_LIMIT));
+            }
+        }
+
+        @Override
+        boolean contains(char value) {
+            return Arrays.binarySearch(values, 0, cardinality, value) >= 0;
+        }
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        int bytes() {
+            return cardinality * Character.BYTES;
+        }
+
+        @Override
+        long[] toWords() {
+
+            long[] words = new long[BITMAP_WORDS];
+            orInto(words);
+            return words;
+        }
+
+        @Override
+        void orInto(long[] words) {
+
+            for (int i = 0; i < cardinality; i++) {
+                words[values[i] >>> 6] |= 1L << values[i];
+            }
+        }
+
+        @Override
+        void clearFrom(long[] words) {
+
+            for (int i = 0; i < cardinality; i++) {
+                words[values[i] >>> 6] &= ~(1L << values[i]);
+            }
+        }
+
+        @Override
+        void forEach(int high, IntConsumer action) {
+
+            for (int i = 0; i < cardinality; i++) {
+                action.accept(high | values[i]);
+            }
+        }
+
+        Container and(ArrayContainer other) {
+
+            char[] result = new char[Math.min(cardinality, other.cardinality)];
+            int count = 0;
+            int i = 0;
+            int j = 0;
+            while (i < cardinality && j < other.cardinality) {
+                if (values[i] < other.values[j]) {
+                    i++;
+                } else if (values[i] > other.values[j]) {
+                    j++;
+                } else {
+                    result[count++] = values[i++];
+                    j++;
+                }
+            }
+            return count == 0 ? null : new ArrayContainer(result, count);
+        }
+
+        Container or(ArrayContainer other) {
+
+            if (cardinality + other.cardinality > ARRAY_LIMIT) {
+                long[] words = toWords();
+                other.orInto(words);
+                return fromWords(words);
+            }
+
+            char[] result = new char[cardinality + other.cardinality];
+            int count = 0;
+            int i = 0;
+            int j = 0;
+            while (i < cardinality || j < other.cardinality) {
+                if (j == other.cardinality || (i < cardinality && values[i] < other.values[j])) {
+                    result[count++] = values[i++];
+                } else if (i == cardinality || values[i] > other.values[j]) {
+                    result[count++] = other.values[j++];
+                } else {
+                    result[count++] = values[i++];
+                    j++;
+                }
+            }
+            return new ArrayContainer(result, count);
+        }
+
+        /**
+         * Keep the values which the other container does (or does not) contain.
+         * @param other a container
+         * @param contained true to keep the contained values, false for the others
+         * @return an array container, or null if empty.
+         */
+        Container filter(Container other, boolean contained) {
+
+            char[] result = new char[cardinality];
+            int count = 0;
+            for (int i = 0; i < cardinality; i++) {
+                if (other.contains(values[i]) == contained) {
+                    result[count++] = values[i];
+                }
+            }
+            return count == 0 ? null : new ArrayContainer(result, count);
+        }
+    }
+
+    private static class BitmapContainer extends Container {
+
+        private final long[] words;
+        private int cardinality;
+
+        BitmapContainer(long[] words, int cardinality) {
+            this.words = words;
+            this.cardinality = cardinality;
+        }
+
+        @Override
+        Container add(char value) {
+
+            long bit = 1L << value;
+            if ((words[value >>> 6] & bit) == 0) {
+                words[value >>> 6] |= bit;
+                cardinality++;
+            }
+            return this;
+        }
+
+        @Override
+        boolean contains(char value) {
+            return (words[value >>> 6] & (1L << value)) != 0;
+        }
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        int bytes() {
+            return BITMAP_BYTES;
+        }
+
+        @Override
+        long[] toWords() {
+            return words.clone();
+        }
+
+        @Override
+        void orInto(long[] others) {
+
+            for (int k = 0; k < BITMAP_WORDS; k++) {
+                others[k] |= words[k];
+            }
+        }
+
+        @Override
+        void clearFrom(long[] others) {
+
+            for (int k = 0; k < BITMAP_WORDS; k++) {
+                others[k] &= ~words[k];
+            }
+        }
+
+        @Override
+        void forEach(int high, IntConsumer action) {
+
+            for (int k = 0; k < BITMAP_WORDS; k++) {
+                long word = words[k];
+                while (word != 0) {
+                    action.accept(high | k << 6 | Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+        }
+    }
+
+    /**
+     * Runs of consecutive values, as pairs of a start and a length minus one.
+     */
+    private static class RunContainer extends Container {
+
+        private final char[] runs;
+        private final int count;
+
+        RunContainer(char[] runs, int count) {
+            this.runs = runs;
+            this.count = count;
+        }
+
+        static int bytes(int runs) {
+            return 2 * Character.BYTES * runs;
+        }
+
+        static RunContainer of(long[] words, int runs) {
+
+            char[] pairs = new char[2 * runs];
+            int count = 0;
+            int start = -1;
+            for (int bit = 0; bit <= BITMAP_WORDS * Long.SIZE; bit++) {
+                boolean set = bit < BITMAP_WORDS * Long.SIZE && (words[bit >>> 6] & (1L << bit)) != 0;
+                if (set && start < 0) {
+                    start = bit;
+                } else if (!set && start >= 0) {
+                    pairs[2 * count] = (char) start;
+                    pairs[2 * count + 1] = (char) (bit - 1 - start);
+                    count++;
+                    start = -1;
+                }
+            }
+            return new RunContainer(pairs, count);
+        }
+
+        @Override
+        Container add(char value) {
+
+            if (contains(value)) {
+                return this;
+            }
+            long[] words = toWords();
+            return new BitmapContainer(words, cardinality()).add(value);
+        }
+
+        @Override
+        boolean contains(char value) {
+
+            int low = 0;
+            int high = count - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                if (runs[2 * mid] > value) {
+                    high = mid - 1;
+                } else if (runs[2 * mid] + runs[2 * mid + 1] < value) {
+                    low = mid + 1;
+                } else {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        int cardinality() {
+
+            int cardinality = 0;
+            for (int i = 0; i < count; i++) {
+                cardinality += runs[2 * i + 1] + 1;
+            }
+            return cardinality;
+        }
+
+        @Override
+        int bytes() {
+            return bytes(count);
+        }
+
+        @Override
+        long[] toWords() {
+
+            long[] words = new long[BITMAP_WORDS];
+            orInto(words);
+            return words;
+        }
+
+        @Override
+        void orInto(long[] words) {
+
+            for (int i = 0; i < count; i++) {
+                int start = runs[2 * i];
+                int end = start + runs[2 * i + 1];
+                for (int k = start >>> 6; k <= end >>> 6; k++) {
+                    words[k] |= mask(k, start, end);
+                }
+            }
+        }
+
+        @Override
+        void clearFrom(long[] words) {
+
+            for (int i = 0; i < count; i++) {
+                int start = runs[2 * i];
+                int end = start + runs[2 * i + 1];
+                for (int k = start >>> 6; k <= end >>> 6; k++) {
+                    words[k] &= ~mask(k, start, end);
+                }
+            }
+        }
+
+        /**
+         * @return the bits of word k which lie within [start, end].
+         */
+        private static long mask(int k, int start, int end) {
+
+            int from = Math.max(start, k << 6) & 63;
+            int to = Math.min(end, (k << 6) | 63) & 63;
+            return (-1L >>> (63 - to)) & (-1L << from);
+        }
+
+        @Override
+        void forEach(int high, IntConsumer action) {
+
+            for (int i = 0; i < count; i++) {
+                int start = runs[2 * i];
+                int end = start + runs[2 * i + 1];
+                for (int value = start; value <= end; value++) {
+                    action.accept(high | value);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,297 @@
+package search;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * Lines of text which can be searched by word, either kept on the heap (InvertedIndex)
+ * or memory-mapped from disk (Segment). Queries only need the number of lines,
+ * the text of a line and the posting list of a word.
+ */
+public interface Searchable {
+
+    /**
+     * Getter
+     * @return the number of lines.
+     */
+    int size();
+
+    /**
+     * Getter
+     * @param index the index of a line
+     * @return the text of the line.
+     */
+    String getLine(int index);
+
+    /**
+     * Getter
+     * @param index the index of a line
+     * @return the number of words in the line.
+     */
+    int getLength(int index);
+
+    /**
+     * Getter
+     * @return the number of words in all lines.
+     */
+    long getTotalLength();
+
+    /**
+     * Getter
+     * @param word an analyzed word
+     * @return the line indexes in which the word occurs, or null if there are none.
+     */
+    PostingList getPostingList(String word);
+
+    /**
+     * Find the words of the index within the specified edit distance of a word.
+     * By default only the word itself is found, if it occurs.
+     * @param word an analyzed word
+     * @param distance the largest number of edits
+     * @return the matching words.
+     */
+    default List<String> getFuzzyTerms(String word, int distance) {
+        return getPostingList(word) == null ? List.of() : List.of(word);
+    }
+
+    /**
+     * Getter
+     * @return the analyzer the lines were indexed with, which queries have to be analyzed with too.
+     */
+    default Analyzer getAnalyzer() {
+        return Analyzer.STANDARD;
+    }
+
+    /**
+     * Getter
+     * @return a number which changes whenever lines are added, so results of earlier queries are stale.
+     */
+    default long getGeneration() {
+        return 0;
+    }
+
+    /**
+     * Check if there is any data to search.
+     * @return true if no data exist, else false.
+     */
+    default boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Find the line(s) matching all words of the query.
+     * Words which occur in no line are ignored.
+     * @param query word(s) separated by space
+     * @return the matching line indexes.
+     */
+    default RoaringBitmap findAll(String query) {
+        return RoaringBitmap.of(PostingList.intersect(postingsOf(query)));
+    }
+
+    /**
+     * Find the line(s) matching any words of the query,
+     * as the union of the bitmaps of the words.
+     * @param query word(s) separated by space
+     * @return the matching line indexes.
+     */
+    default RoaringBitmap findAny(String query) {
+
+        RoaringBitmap matches = new RoaringBitmap();
+        for (PostingList postingList : postingsOf(query)) {
+            matches = matches.or(RoaringBitmap.of(postingList));
+        }
+        return matches;
+    }
+
+    /**
+     * Find the line(s) not matching any words of the query,
+     * as the complement of findAny() within all lines.
+     * @param query word(s) separated by space
+     * @return the line indexes, in run containers wherever they are consecutive.
+     */
+    default RoaringBitmap findNone(String query) {
+        return RoaringBitmap.range(0, size()).andNot(findAny(query)).runOptimize();
+    }
+
+    /**
+     * Search for line(s) matching all words of the query.
+     * Words which occur in no line are ignored.
+     * @param query word(s) separated by space
+     * @return a list of matching lines.
+     */
+    default List<String> matchAll(String query) {
+        return linesOrNone(findAll(query));
+    }
+
+    /**
+     * Search for line(s) matching any words of the query.
+     * @param query word(s) separated by space
+     * @return a list of matching lines.
+     */
+    default List<String> matchAny(String query) {
+        return linesOrNone(findAny(query));
+    }
+
+    /**
+     * Search for line(s) matching all words of the query, each of them possibly misspelled.
+     * @param query word(s) separated by space
+     * @param distance the largest number of edits of a word, limited by its length
+     * @return a list of matching lines.
+     */
+    default List<String> matchFuzzy(String query, int distance) {
+        return linesOrNone(findFuzzy(query, distance));
+    }
+
+    /**
+     * Find the line(s) matching all words of the query, each of them possibly misspelled:
+     * a line matches a word if it contains any word of the index within the edit distance of it.
+     * Words which are like no word of the index are ignored, as for findAll().
+     * @param query word(s) separated by space
+     * @param distance the largest number of edits of a word, limited by its length
+     * @return the matching line indexes.
+     */
+    default RoaringBitmap findFuzzy(String query, int distance) {
+
+        RoaringBitmap matches = null;
+        for (String word : new LinkedHashSet<>(getAnalyzer().terms(query))) {
+            RoaringBitmap similar = new RoaringBitmap();
+            for (String term : getFuzzyTerms(word, FuzzyQuery.distanceOf(word, distance))) {
+                similar = similar.or(RoaringBitmap.of(getPostingList(term)));
+            }
+            if (!similar.isEmpty()) {
+                matches = matches == null ? similar : matches.and(similar);
+            }
+        }
+        return matches == null ? new RoaringBitmap() : matches;
+    }
+
+    /**
+     * Search for line(s) containing the words of the query as a phrase, in the same order.
+     * @param query word(s) separated by space
+     * @return a list of matching lines.
+     */
+    default List<String> matchPhrase(String query) {
+        return linesOrNone(findPhrase(query));
+    }
+
+    /**
+     * Find the line(s) containing the words of the query as a phrase.
+     * @param query word(s) separated by space
+     * @return the matching line indexes.
+     */
+    default RoaringBitmap findPhrase(String query) {
+        return RoaringBitmap.of(PhraseQuery.phrase(this, query));
+    }
+
+    /**
+     * Search for line(s) containing all words of the query close to each other.
+     * @param query word(s) separated by space
+     * @param distance the largest number of positions between the first and the last word
+     * @return a list of matching lines.
+     */
+    default List<String> matchNear(String query, int distance) {
+        return linesOrNone(findNear(query, distance));
+    }
+
+    /**
+     * Find the line(s) containing all words of the query close to each other.
+     * @param query word(s) separated by space
+     * @param distance the largest number of positions between the first and the last word
+     * @return the matching line indexes.
+     */
+    default RoaringBitmap findNear(String query, int distance) {
+        return RoaringBitmap.of(PhraseQuery.near(this, query, distance));
+    }
+
+    /**
+     * Search for the line(s) most relevant to the words of the query, ranked by BM25.
+     * @param query word(s) separated by space
+     * @param k the maximum number of lines
+     * @return a list of at most k lines, the most relevant first.
+     */
+    default List<String> matchTop(String query, int k) {
+
+        int[] indexes = findTop(query, k);
+        if (indexes.length > 0) {
+            List<String> foundTargets = new ArrayList<>(indexes.length);
+            for (int index : indexes) {
+                foundTargets.add(getLine(index));
+            }
+            return foundTargets;
+        }
+
+        System.out.println("No matching people found.");
+        System.out.println();
+        return null;
+    }
+
+    /**
+     * Find the line(s) most relevant to the words of the query, ranked by BM25.
+     * @param query word(s) separated by space
+     * @param k the maximum number of lines
+     * @return at most k line indexes, the most relevant first.
+     */
+    default int[] findTop(String query, int k) {
+        return Bm25.top(this, query, k);
+    }
+
+    /**
+     * Search for line(s) not matching any of words of the query.
+     * Identical lines are all listed, as they are distinct lines.
+     * @param target a name to exclude from the resulting list.
+     * @return a list of people.
+     */
+    default List<String> matchNone(String target) {
+
+        RoaringBitmap matches = findNone(target);
+        if (!matches.isEmpty()) {
+            return linesOf(matches);
+        }
+
+        System.out.println("No unmatching lines found.");
+        System.out.println();
+        return null;
+    }
+
+    /**
+     * Find the posting lists of the words of the query.
+     * Words which occur in no line are left out.
+     * @param query word(s) separated by space
+     * @return a list of posting lists, empty if no word occurs.
+     */
+    private List<PostingList> postingsOf(String query) {
+
+        List<PostingList> postings = new ArrayList<>();
+        for (String word : getAnalyzer().terms(query)) {
+            PostingList postingList = getPostingList(word);
+            if (postingList != null) {
+                postings.add(postingList);
+            }
+        }
+        return postings;
+    }
+
+    private List<String> linesOrNone(RoaringBitmap matches) {
+
+        if (!matches.isEmpty()) {
+            return linesOf(matches);
+        }
+
+        System.out.println("No matching people found.");
+        System.out.println();
+        return null;
+    }
+
+    /**
+     * Collect the lines of the specified line indexes.
+     * @param matches line indexes
+     * @return a list of lines in line order.
+     */
+    private List<String> linesOf(RoaringBitmap matches) {
+
+        List<String> foundTargets = new ArrayList<>(matches.cardinality());
+        matches.forEach(index -> foundTargets.add(getLine(index)));
+        return foundTargets;
+    }
+}
@@ -0,0 +1,372 @@
+package search;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A persistent InvertedIndex of a data file, written next to it as three files
+ * and memory-mapped on the next run instead of indexing the data again:
+ *     default.txt.terms      every word in UTF-8 byte order with the position of its posting list,
+ *     default.txt.postings   the posting lists, encoded as in PostingList,
+ *     default.txt.lines      the offset and the number of words of every line in the data file.
+ * Only the posting lists of the queried words and the matching lines are ever read,
+ * so a segment opens in milliseconds and may be much larger than the heap.
+ *
+ * Every file starts with the same header (big-endian):
+ *     int magic, int version,
+ *     long length and long last-modified time of the data file,
+ *     long id shared by the three files of a segment,
+ *     int number of terms (or lines), int flags of the Analyzer the words were found with.
+ * The terms file ends with the positions of its entries, each entry being
+ *     int length of the word, the word's bytes, long position of its posting list,
+ * and the lines file holds one long per line plus the length of the data file,
+ * then one int per line with its number of words, then a long total of words.
+ * A segment is only used if the data file still has the same length and time,
+ * all three files belong together and the words were found with the wanted analyzer,
+ * otherwise it is rebuilt.
+ */
+public class Segment implements Searchable {
+
+    private static final int MAGIC = 0x53534547; // "SSEG"
+    private static final int VERSION = 4;
+    private static final int HEADER_SIZE = 40;
+
+    private final MappedFile data;
+    private final MappedFile terms;
+    private final MappedFile postings;
+    private final MappedFile lines;
+    private final int termCount;
+    private final int lineCount;
+    private final long termTable;
+    private final long lengthTable;
+    private final long totalLength;
+    private final Analyzer analyzer;
+    private final Charset charset = Charset.defaultCharset();
+
+    private Segment(MappedFile data, MappedFile terms, MappedFile postings, MappedFile lines) {
+
+        this.data = data;
+        this.terms = terms;
+        this.postings = postings;
+        this.lines = lines;
+        this.termCount = terms.getInt(32);
+        this.lineCount = lines.getInt(32);
+        this.termTable = terms.length() - (termCount + 1L) * Long.BYTES;
+        this.lengthTable = HEADER_SIZE + (lineCount + 1L) * Long.BYTES;
+        this.totalLength = lines.getLong(lengthTable + (long) lineCount * Integer.BYTES);
+        this.analyzer = Analyzer.of(terms.getInt(36));
+    }
+
+    /**
+     * Getter
+     * @param dataFile a data file
+     * @param extension "terms", "postings" or "lines"
+     * @return the segment file belonging to it.
+     */
+    public static File segmentFileOf(File dataFile, String extension) {
+        return new File(dataFile.getPath() + "." + extension);
+    }
+
+    /**
+     * Open the segment of the specified data file, if it exists and is still valid.
+     * @param dataFile an existing data file
+     * @param analyzer the analyzer the words have to be found with
+     * @return a segment, or null if it has to be rebuilt.
+     * @throws IOException if any of the files cannot be read
+     */
+    public static Segment open(File dataFile, Analyzer analyzer) throws IOException {
+
+        File[] files = {
+                segmentFileOf(dataFile, "terms"),
+                segmentFileOf(dataFile, "postings"),
+                segmentFileOf(dataFile, "lines")
+        };
+        for (File file : files) {
+            if (!file.isFile() || file.length() < HEADER_SIZE) {
+                return null;
+            }
+        }
+
+        MappedFile terms = new MappedFile(files[0]);
+        MappedFile postings = new MappedFile(files[1]);
+        MappedFile lines = new MappedFile(files[2]);
+        long id = terms.getLong(24);
+        for (MappedFile file : new MappedFile[] {terms, postings, lines}) {
+            if (file.getInt(0) != MAGIC
+                    || file.getInt(4) != VERSION
+                    || file.getLong(8) != dataFile.length()
+                    || file.getLong(16) != lastModified(dataFile)
+                    || file.getLong(24) != id
+                    || file.getInt(36) != analyzer.getFlags()) {
+                return null;
+            }
+        }
+        if (terms.getInt(32) != postings.getInt(32)
+                || terms.length() < HEADER_SIZE + (terms.getInt(32) + 1L) * Long.BYTES
+                || lines.length() != HEADER_SIZE + (lines.getInt(32) + 2L) * Long.BYTES
+                        + (long) lines.getInt(32) * Integer.BYTES) {
+            return null;
+        }
+
+        return new Segment(new MappedFile(dataFile), terms, postings, lines);
+    }
+
+    /**
+     * Write the specified index of a data file as its segment, then open the segment.
+     * The files are written to temporary files first and then moved in place,
+     * so an interrupted write never leaves a broken segment behind.
+     * @param invertedIndex an index of every line of the data file
+     * @param dataFile the file the index was built from
+     * @return the segment.
+     * @throws IOException if the segment cannot be written
+     */
+    public static Segment write(InvertedIndex invertedIndex, File dataFile) throws IOException {
+
+        long id = System.nanoTime();
+        long[] lineStarts = lineStarts(dataFile);
+        if (lineStarts.length - 1 != invertedIndex.size()) {
+            throw new IOException("The data file has changed while being indexed.");
+        }
+
+        Map<String, PostingList> map = invertedIndex.getPostings();
+        String[] keys = map.keySet().toArray(new String[0]);
+        byte[][] words = new byte[keys.length][];
+        Integer[] order = new Integer[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            words[i] = keys[i].getBytes(StandardCharsets.UTF_8);
+            order[i] = i;
+        }
+        Arrays.sort(order, (i, j) -> Arrays.compareUnsigned(words[i], words[j]));
+
+        File termsFile = segmentFileOf(dataFile, "terms.tmp");
+        File postingsFile = segmentFileOf(dataFile, "postings.tmp");
+        File linesFile = segmentFileOf(dataFile, "lines.tmp");
+
+        try (DataOutputStream termsOut = create(termsFile);
+             DataOutputStream postingsOut = create(postingsFile);
+             DataOutputStream linesOut = create(linesFile)) {
+
+            int flags = invertedIndex.getAnalyzer().getFlags();
+            writeHeader(termsOut, dataFile, id, words.length, flags);
+            writeHeader(postingsOut, dataFile, id, words.length, flags);
+            writeHeader(linesOut, dataFile, id, lineStarts.length - 1, flags);
+
+            long[] entries = new long[words.length + 1];
+            long termsPosition = HEADER_SIZE;
+            long postingsPosition = HEADER_SIZE;
+            for (int i = 0; i < order.length; i++) {
+                byte[] word = words[order[i]];
+                entries[i] = termsPosition;
+                termsOut.writeInt(word.length);
+                termsOut.write(word);
+                termsOut.writeLong(postingsPosition);
+                termsPosition += Integer.BYTES + word.length + Long.BYTES;
+
+                postingsPosition += map.get(keys[order[i]]).write(postingsOut);
+            }
+            entries[words.length] = termsPosition;
+            for (long entry : entries) {
+                termsOut.writeLong(entry);
+            }
+
+            for (long start : lineStarts) {
+                linesOut.writeLong(start);
+            }
+            for (int i = 0; i < invertedIndex.size(); i++) {
+                linesOut.writeInt(invertedIndex.getLength(i));
+            }
+            linesOut.writeLong(invertedIndex.getTotalLength());
+        }
+
+        move(linesFile, segmentFileOf(dataFile, "lines"));
+        move(postingsFile, segmentFileOf(dataFile, "postings"));
+        move(termsFile, segmentFileOf(dataFile, "terms"));
+
+        Segment segment = open(dataFile, invertedIndex.getAnalyzer());
+        if (segment == null) {
+            throw new IOException("The data file has changed while being indexed.");
+        }
+        return segment;
+    }
+
+    /**
+     * Helper of write(). Find where each line of the data file starts.
+     * Lines end with "\n", "\r" or "\r\n", just as for BufferedReader.readLine().
+     * @param dataFile a data file
+     * @return the start of every line, followed by the length of the file.
+     * @throws IOException if the file cannot be read
+     */
+    private static long[] lineStarts(File dataFile) throws IOException {
+
+        long[] starts = new long[16];
+        int count = 0;
+        try (InputStream in = new BufferedInputStream(new FileInputStream(dataFile), 1 << 16)) {
+            long position = 0;
+            boolean lineStart = true;
+            boolean afterCarriageReturn = false;
+            int b;
+            while ((b = in.read()) != -1) {
+                if (b == '\n' && afterCarriageReturn) {
+                    afterCarriageReturn = false;
+                    position++;
+                    continue;
+                }
+                if (lineStart) {
+                    if (count + 1 == starts.length) {
+                        starts = Arrays.copyOf(starts, count << 1);
+                    }
+                    starts[count++] = position;
+                    lineStart = false;
+                }
+                if (b == '\n' || b == '\r') {
+                    lineStart = true;
+                }
+                afterCarriageReturn = b == '\r';
+                position++;
+            }
+            starts[count++] = position;
+        }
+        return Arrays.copyOf(starts, count);
+    }
+
+    private static DataOutputStream create(File file) throws IOException {
+        return new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16));
+    }
+
+    private static void writeHeader(DataOutputStream out, File dataFile, long id, int count, int flags)
+            throws IOException {
+
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeLong(dataFile.length());
+        out.writeLong(lastModified(dataFile));
+        out.writeLong(id);
+        out.writeInt(count);
+        out.writeInt(flags);
+    }
+
+    private static void move(File from, File to) throws IOException {
+        Files.move(from.toPath(), to.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static long lastModified(File file) throws IOException {
+        return Files.getLastModifiedTime(file.toPath()).toMillis();
+    }
+
+    @Override
+    public Analyzer getAnalyzer() {
+        return analyzer;
+    }
+
+    @Override
+    public int size() {
+        return lineCount;
+    }
+
+    /**
+     * Getter. Reads the line from the mapped data file, without its line break.
+     * @param index the index of a line
+     * @return the text of the line.
+     */
+    @Override
+    public String getLine(int index) {
+
+        long start = lines.getLong(HEADER_SIZE + (long) index * Long.BYTES);
+        long end = lines.getLong(HEADER_SIZE + (index + 1L) * Long.BYTES);
+        while (end > start && (data.getByte(end - 1) == '\n' || data.getByte(end - 1) == '\r')) {
+            end--;
+        }
+
+        byte[] bytes = new byte[(int) (end - start)];
+        data.get(start, bytes, 0, bytes.length);
+        return new String(bytes, charset);
+    }
+
+    @Override
+    public int getLength(int index) {
+        return lines.getInt(lengthTable + (long) index * Integer.BYTES);
+    }
+
+    @Override
+    public long getTotalLength() {
+        return totalLength;
+    }
+
+    /**
+     * Getter. Binary searches the term dictionary and reads the word's posting list.
+     * @param word an analyzed word
+     * @return the line indexes in which the word occurs, or null if there are none.
+     */
+    @Override
+    public PostingList getPostingList(String word) {
+
+        byte[] key = word.getBytes(StandardCharsets.UTF_8);
+        int left = 0;
+        int right = termCount - 1;
+        while (left <= right) {
+            int mid = (left + right) >>> 1;
+            long entry = terms.getLong(termTable + (long) mid * Long.BYTES);
+            int comparison = compareTerm(entry, key);
+            if (comparison < 0) {
+                left = mid + 1;
+            } else if (comparison > 0) {
+                right = mid - 1;
+            } else {
+                long position = terms.getLong(entry + Integer.BYTES + key.length);
+                return PostingList.read(postings, position);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Getter. Walks the term dictionary, which is sorted by UTF-8 bytes, i.e. by code point.
+     * @param word an analyzed word
+     * @param distance the largest number of edits
+     * @return the words within the edit distance of the word.
+     */
+    @Override
+    public List<String> getFuzzyTerms(String word, int distance) {
+        return FuzzyQuery.expand(word, distance, termCount, this::getTerm);
+    }
+
+    private String getTerm(int i) {
+
+        long entry = terms.getLong(termTable + (long) i * Long.BYTES);
+        byte[] bytes = new byte[terms.getInt(entry)];
+        terms.get(entry + Integer.BYTES, bytes, 0, bytes.length);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Compare the word of a term entry with the specified UTF-8 bytes, byte by byte.
+     * @param entry position of a term entry
+     * @param key UTF-8 bytes of a word
+     * @return 0 if equal, a negative number if the entry's word is lower, else a positive number.
+     */
+    private int compareTerm(long entry, byte[] key) {
+
+        int length = terms.getInt(entry);
+        long position = entry + Integer.BYTES;
+        for (int k = 0; k < Math.min(length, key.length); k++) {
+            int comparison = Integer.compare(terms.getByte(position + k) & 0xFF, key[k] & 0xFF);
+            if (comparison != 0) {
+                return comparison;
+            }
+        }
+        return Integer.compare(length, key.length);
+    }
+}
@@ -0,0 +1,198 @@
+package search;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Measures a QueryServer under load: many clients send a mix of queries
+ * while a writer keeps adding lines, and the throughput and latencies are printed.
+ * Every client is a thread with a connection of its own.
+ *
+ * Start with: Main --benchmark [--data file] [--clients 64] [--seconds 5] [--adds 1000]
+ * where --adds is the number of lines added per second.
+ */
+public class ServerBenchmark {
+
+    private static final String[] STRATEGIES = {"ALL", "ANY", "TOP", "PHRASE"};
+
+    /**
+     * Run this method to start the benchmark from the terminal.
+     * @param args arguments passed from terminal.
+     */
+    public static void run(String[] args) {
+
+        File inputFile = Application.parseArgs(args);
+        int clients = intArgument(args, "--clients", 64);
+        int seconds = intArgument(args, "--seconds", 5);
+        int adds = intArgument(args, "--adds", 1000);
+
+        Searchable base = Application.openIndex(inputFile);
+        if (base == null) {
+            return;
+        }
+        if (base.isEmpty()) {
+            System.out.println("There are no lines to query.");
+            return;
+        }
+
+        LiveIndex liveIndex = new LiveIndex(base);
+        try {
+            QueryServer server = new QueryServer(liveIndex, 0);
+            server.start();
+            run(server, liveIndex, base, clients, seconds, adds);
+            server.close();
+        } catch (IOException e) {
+            System.out.println("Error running the benchmark");
+        }
+    }
+
+    private static void run(QueryServer server, LiveIndex liveIndex, Searchable base,
+                            int clients, int seconds, int adds) throws IOException {
+
+        long end = System.nanoTime() + seconds * 1_000_000_000L;
+        Thread writer = new Thread(() -> write(liveIndex, base, adds, end));
+        writer.start();
+
+        ExecutorService pool = Executors.newFixedThreadPool(clients);
+        List<Future<long[]>> results = new ArrayList<>();
+        for (int i = 0; i < clients; i++) {
+            long seed = i;
+            results.add(pool.submit(() -> query(server.getPort(), base, new Random(seed), end)));
+        }
+
+        long[] latencies = new long[0];
+        try {
+            for (Future<long[]> result : results) {
+                long[] client = result.get();
+                int from = latencies.length;
+                latencies = Arrays.copyOf(latencies, from + client.length);
+                System.arraycopy(client, 0, latencies, from, client.length);
+            }
+            writer.join();
+        } catch (Exception e) {
+            throw new IOException(e);
+        } finally {
+            pool.shutdown();
+        }
+
+        Arrays.sort(latencies);
+        System.out.printf("Clients: %d, queries: %d, queries/s: %.0f%n",
+                clients, latencies.length, latencies.length / (double) seconds);
+        if (latencies.length > 0) {
+            System.out.printf("Latency p50: %.3f ms, p99: %.3f ms, max: %.3f ms%n",
+                    latencies[latencies.length / 2] / 1e6,
+                    latencies[(int) (latencies.length * 0.99)] / 1e6,
+                    latencies[latencies.length - 1] / 1e6);
+        }
+        System.out.printf("Lines added: %d, lines: %d, segments: %d%n",
+                liveIndex.getAdded(), liveIndex.size(), liveIndex.snapshot().getSegmentCount());
+        System.out.println(server.getQueryCache().getStatistics());
+    }
+
+    /**
+     * Add existing lines again at the specified rate until the end.
+     */
+    private static void write(LiveIndex liveIndex, Searchable base, int adds, long end) {
+
+        if (adds <= 0) {
+            return;
+        }
+        long interval = 1_000_000_000L / adds;
+        long next = System.nanoTime();
+        int line = 0;
+        while (next < end) {
+            liveIndex.add(base.getLine(line));
+            line = (line + 1) % base.size();
+            next += interval;
+            long wait = next - System.nanoTime();
+            if (wait > 0) {
+                try {
+                    Thread.sleep(wait / 1_000_000, (int) (wait % 1_000_000));
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Send random queries over a single connection until the end.
+     * @return the latency of every query in nanoseconds.
+     */
+    private static long[] query(int port, Searchable base, Random random, long end) throws IOException {
+
+        long[] latencies = new long[1024];
+        int count = 0;
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+             BufferedReader in = new BufferedReader(
+                     new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             Writer out = new BufferedWriter(
+                     new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8))) {
+
+            long start = System.nanoTime();
+            while (start < end) {
+                String strategy = STRATEGIES[random.nextInt(STRATEGIES.length)];
+                out.write(strategy + " " + randomQuery(base, random) + "\n");
+                out.flush();
+
+                String response = in.readLine();
+                if (response == null || response.startsWith("ERROR")) {
+                    throw new IOException("Unexpected response: " + response);
+                }
+                for (int lines = Integer.parseInt(response); lines > 0; lines--) {
+                    in.readLine();
+                }
+
+                long now = System.nanoTime();
+                if (count == latencies.length) {
+                    latencies = Arrays.copyOf(latencies, count * 2);
+                }
+                latencies[count++] = now - start;
+                start = now;
+            }
+        }
+        return Arrays.copyOf(latencies, count);
+    }
+
+    /**
+     * Pick one or two consecutive words of a random line, so that most queries match.
+     */
+    private static String randomQuery(Searchable base, Random random) {
+
+        String[] words = base.getLine(random.nextInt(base.size())).split(" ");
+        int first = random.nextInt(words.length);
+        if (first + 1 < words.length && random.nextBoolean()) {
+            return words[first] + " " + words[first + 1];
+        }
+        return words[first];
+    }
+
+    private static int intArgument(String[] args, String name, int defaultValue) {
+
+        for (int i = 0; i < args.length - 1; i++) {
+            if (args[i].equals(name)) {
+                try {
+                    return Integer.parseInt(args[i + 1]);
+                } catch (NumberFormatException e) {
+                    System.out.printf("\"%s\" isn't a valid number. It's skipped.%n", args[i + 1]);
+                }
+            }
+        }
+        return defaultValue;
+    }
+}
@@ -0,0 +1,295 @@
+package search;
+
+import java.io.DataOutput;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * An immutable view of a LiveIndex: the frozen segments it consisted of when published.
+ * Segments (a mapped Segment or InvertedIndexes) are never added to once frozen,
+ * so any number of threads may search a snapshot without locks while new lines are being indexed.
+ * The lines of each segment follow the lines of the previous one (its base),
+ * and a word's posting list is the concatenation of its lists in every segment:
+ * a Chain, whose cursor walks the lists of the segments where they are,
+ * adding each segment's base to its line indexes, instead of encoding them again.
+ */
+public class Snapshot implements Searchable {
+
+    private final Searchable[] segments;
+    private final int[] bases;
+    private final int size;
+    private final long totalLength;
+
+    /**
+     * Create a snapshot of the specified segments.
+     * @param segments frozen indexes, in line order
+     */
+    Snapshot(List<Searchable> segments) {
+
+        this.segments = segments.toArray(new Searchable[0]);
+        this.bases = new int[this.segments.length];
+        int lines = 0;
+        long words = 0;
+        for (int i = 0; i < this.segments.length; i++) {
+            bases[i] = lines;
+            lines += this.segments[i].size();
+            words += this.segments[i].getTotalLength();
+        }
+        this.size = lines;
+        this.totalLength = words;
+    }
+
+    /**
+     * Getter
+     * @return the number of segments.
+     */
+    public int getSegmentCount() {
+        return segments.length;
+    }
+
+    /**
+     * Getter
+     * @return the analyzer of the segments, which all share the analyzer of the first one.
+     */
+    @Override
+    public Analyzer getAnalyzer() {
+        return segments[0].getAnalyzer();
+    }
+
+    /**
+     * Getter. Lines are only ever appended, so the number of lines
+     * tells snapshots apart.
+     * @return the number of lines.
+     */
+    @Override
+    public long getGeneration() {
+        return size;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Find the segment holding the specified line.
+     * @param index the index of a line
+     * @return a segment index.
+     */
+    private int segmentOf(int index) {
+
+        int i = Arrays.binarySearch(bases, index);
+        if (i < 0) {
+            return -i - 2;
+        }
+        // empty segments share their base with the next one
+        while (i < segments.length - 1 && bases[i + 1] == index) {
+            i++;
+        }
+        return i;
+    }
+
+    @Override
+    public String getLine(int index) {
+
+        int i = segmentOf(index);
+        return segments[i].getLine(index - bases[i]);
+    }
+
+    @Override
+    public int getLength(int index) {
+
+        int i = segmentOf(index);
+        return segments[i].getLength(index - bases[i]);
+    }
+
+    @Override
+    public long getTotalLength() {
+        return totalLength;
+    }
+
+    /**
+     * Getter
+     * @param word an analyzed word
+     * @param distance the largest number of edits
+     * @return the words within the edit distance of the word in any segment.
+     */
+    @Override
+    public List<String> getFuzzyTerms(String word, int distance) {
+
+        Set<String> terms = new TreeSet<>();
+        for (Searchable segment : segments) {
+            terms.addAll(segment.getFuzzyTerms(word, distance));
+        }
+        return new ArrayList<>(terms);
+    }
+
+    /**
+     * Getter. A word found in a single segment starting at line 0 shares its list,
+     * otherwise the lists of the segments are chained.
+     * @param word an analyzed word
+     * @return the line indexes in which the word occurs, or null if there are none.
+     */
+    @Override
+    public PostingList getPostingList(String word) {
+
+        PostingList[] postings = new PostingList[segments.length];
+        int[] offsets = new int[segments.length];
+        int holders = 0;
+        for (int i = 0; i < segments.length; i++) {
+            PostingList postingList = segments[i].getPostingList(word);
+            if (postingList != null) {
+                postings[holders] = postingList;
+                offsets[holders++] = bases[i];
+            }
+        }
+        if (holders == 0) {
+            return null;
+        }
+        if (holders == 1 && offsets[0] == 0) {
+            return postings[0];
+        }
+        return new Chain(Arrays.copyOf(postings, holders), Arrays.copyOf(offsets, holders));
+    }
+
+    /**
+     * The posting lists of a word in several segments, read one after the other.
+     * It is only meant to be read, not added to.
+     */
+    private static class Chain extends PostingList {
+
+        private final PostingList[] lists;
+        private final int[] offsets;
+        private final int size;
+        private final int maxFreq;
+        private final int bytes;
+
+        /**
+         * Chain the specified lists.
+         * @param lists posting lists, in line order
+         * @param offsets the base of each list, added to its line indexes
+         */
+        Chain(PostingList[] lists, int[] offsets) {
+
+            this.lists = lists;
+            this.offsets = offsets;
+            int size = 0;
+            int maxFreq = 0;
+            int bytes = 0;
+            for (PostingList list : lists) {
+                size += list.size();
+                maxFreq = Math.max(maxFreq, list.maxFreq());
+                bytes += list.bytes();
+            }
+            this.size = size;
+            this.maxFreq = maxFreq;
+            this.bytes = bytes;
+        }
+
+        @Override
+        public void add(int index, int position) {
+            throw new UnsupportedOperationException("A chain of posting lists is read-only.");
+        }
+
+        @Override
+        public long write(DataOutput out) {
+            throw new UnsupportedOperationException("A chain of posting lists isn't written.");
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public int maxFreq() {
+            return maxFreq;
+        }
+
+        @Override
+        public int bytes() {
+            return bytes;
+        }
+
+        @Override
+        public Cursor cursor() {
+            return new ChainCursor();
+        }
+
+        /**
+         * Reads the lists of the chain with one cursor each, moving to the next list
+         * once a cursor is exhausted.
+         */
+        private class ChainCursor implements Cursor {
+
+            private final Cursor[] cursors = new Cursor[lists.length];
+            private int current;
+            private int doc = -1;
+
+            ChainCursor() {
+
+                for (int i = 0; i < lists.length; i++) {
+                    cursors[i] = lists[i].cursor();
+                }
+            }
+
+            @Override
+            public PostingList list() {
+                return Chain.this;
+            }
+
+            @Override
+            public int doc() {
+                return doc;
+            }
+
+            @Override
+            public int freq() {
+                return cursors[current].freq();
+            }
+
+            @Override
+            public int next() {
+
+                while (current < cursors.length) {
+                    int next = cursors[current].next();
+                    if (next != END) {
+                        return doc = next + offsets[current];
+                    }
+                    current++;
+                }
+                return doc = END;
+            }
+
+            @Override
+            public int[] positions(int[] buffer) {
+                return cursors[current].positions(buffer);
+            }
+
+            /**
+             * Move to the first line index which is not below the target.
+             * Lists ending below the target are left at once by their own cursor's skip table.
+             * @param target a line index
+             * @return the line index, or END if there is none.
+             */
+            @Override
+            public int advance(int target) {
+
+                if (doc >= target) {
+                    return doc;
+                }
+                while (current < cursors.length) {
+                    int next = cursors[current].advance(Math.max(target - offsets[current], 0));
+                    if (next != END) {
+                        return doc = next + offsets[current];
+                    }
+                    current++;
+                }
+                return doc = END;
+            }
+        }
+    }
+}
@@ -1,6 +1,9 @@
 package sorting;
 
 import java.io.*;
+import java.nio.charset.Charset;
+import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.UnsupportedCharsetException;
 import java.util.ArrayList;
 import java.util.Scanner;
 
@@ -13,6 +16,9 @@ import java.util.Scanner;
  *    word = an element is a single word
  *    line = an element is a whole line of text before a line-break
  *    long = an element is a number
+ * Data larger than the memory can be sorted externally, through temporary files,
+ * and data in memory can be sorted on several threads.
+ * The sorted data is streamed to the output file (and echoed to stdout, unless quiet).
  */
 public class Application {
 
@@ -20,6 +26,12 @@ public class Application {
     private static Sorter.SortType sortingType;
     private static File inputFile;
     private static File outputFile;
+    private static boolean external;
+    private static long memory;
+    private static int top;
+    private static Charset encoding;
+    private static boolean quiet;
+    private static int parallelism;
 
     static {
         // set defaults
@@ -27,6 +39,12 @@ public class Application {
         sortingType = Sorter.SortType.NATURAL;
         inputFile = new File("test-file.txt");
         outputFile = new File("out.txt");
+        external = false;
+        memory = Runtime.getRuntime().maxMemory() / 4;
+        top = 0;
+        encoding = Charset.defaultCharset();
+        quiet = false;
+        parallelism = 1;
     }
 
     /**
@@ -35,11 +53,25 @@ public class Application {
      *    -sortingType = natural/byCount
      *    -inputFile = filepath
      *    -outputFile = filepath
+     *    -external = sort through temporary files, for data larger than the memory
+     *    -memory = memory budget of -external, in bytes or with a suffix K/M/G (e.g. 512M)
+     *    -top = list only the N most frequent elements when sorting byCount
+     *    -encoding = charset of the input and output files (e.g. UTF-8)
+     *    -quiet = don't echo the sorted data to stdout
+     *    -parallel = the number of threads sorting data in memory
      * Assign values to relevant class variables.
      * @param args arguments from terminal.
      */
     private static void parseArgs(String[] args) {
 
+        for (String arg : args) {
+            if ("-external".equals(arg)) {
+                external = true;
+            } else if ("-quiet".equals(arg)) {
+                quiet = true;
+            }
+        }
+
         for (int i = 0; i < args.length - 1; i++) {
 
             if ("-sortingType".equals(args[i])) {
@@ -71,12 +103,48 @@ public class Application {
                 inputFile = new File(args[i + 1]);
             } else if ("-outputFile".equals(args[i])) {
                 outputFile = new File(args[i + 1]);
+            } else if ("-memory".equals(args[i])) {
+                long size = parseSize(args[i + 1]);
+                if (size > 0) {
+                    memory = size;
+                } else {
+                    System.out.printf("\"%s\" isn't a valid memory size. It's skipped.%n", args[i + 1]);
+                }
+            } else if ("-top".equals(args[i])) {
+                try {
+                    top = Integer.parseInt(args[i + 1]);
+                } catch (NumberFormatException e) {
+                    top = -1;
+                }
+                if (top <= 0) {
+                    System.out.printf("\"%s\" isn't a valid number of elements. It's skipped.%n", args[i + 1]);
+                    top = 0;
+                }
+            } else if ("-parallel".equals(args[i])) {
+                try {
+                    parallelism = Integer.parseInt(args[i + 1]);
+                } catch (NumberFormatException e) {
+                    parallelism = -1;
+                }
+                if (parallelism <= 0) {
+                    System.out.printf("\"%s\" isn't a valid number of threads. It's skipped.%n", args[i + 1]);
+                    parallelism = 1;
+                }
+            } else if ("-encoding".equals(args[i])) {
+                try {
+                    encoding = Charset.forName(args[i + 1]);
+                } catch (IllegalCharsetNameException | UnsupportedCharsetException e) {
+                    System.out.printf("\"%s\" isn't a valid encoding. It's skipped.%n", args[i + 1]);
+                }
+            } else if ("-external".equals(args[i]) || "-quiet".equals(args[i])) {
+                // flags without a value, set above
             } else if (args[i].startsWith("-")) {
                 System.out.printf("\"%s\" isn't a valid parameter. It's skipped.%n", args[i]);
             }
 
             // error-proof the final argument
-            if (i + 1 == args.length - 1 && args[args.length - 1].startsWith("-")) {
+            if (i + 1 == args.length - 1 && args[args.length - 1].startsWith("-")
+                    && !"-external".equals(args[args.length - 1]) && !"-quiet".equals(args[args.length - 1])) {
                 System.out.printf("\"%s\" isn't a valid parameter. It's skipped.%n", args[args.length - 1]);
             }
         }
@@ -89,6 +157,30 @@ public class Application {
         }
     }
 
+    /**
+     * Parse a number of bytes, optionally followed by K, M or G.
+     * @param text e.g. "512M"
+     * @return the number of bytes, or -1 if the text isn't valid.
+     */
+    private static long parseSize(String text) {
+
+        String upper = text.toUpperCase();
+        int shift = 0;
+        if (upper.endsWith("K")) {
+            shift = 10;
+        } else if (upper.endsWith("M")) {
+            shift = 20;
+        } else if (upper.endsWith("G")) {
+            shift = 30;
+        }
+        try {
+            long size = Long.parseLong(shift == 0 ? upper : upper.substring(0, upper.length() - 1));
+            return size > 0 && size <= Long.MAX_VALUE >> shift ? size << shift : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
     /**
      * Fetch data either from a file (inputFile)
      * or System.in.
@@ -111,7 +203,7 @@ public class Application {
     private static ArrayList<String> inputFromStdin() {
 
         ArrayList<String> input = new ArrayList<>();
-        try (Scanner scanner = new Scanner(System.in)) {
+        try (Scanner scanner = new Scanner(System.in, encoding)) {
             while (scanner.hasNext()) {
                 String line = scanner.nextLine();
                 input.add(line);
@@ -129,7 +221,7 @@ public class Application {
 
         ArrayList<String> input = new ArrayList<>();
 
-        try (BufferedReader in = new BufferedReader(new FileReader(inputFile))) {
+        try (BufferedReader in = new BufferedReader(new FileReader(inputFile, encoding))) {
             String line;
             while (true) {
                 line = in.readLine();
@@ -147,31 +239,49 @@ public class Application {
     }
 
     /**
-     * Write given data to the file (outputFile).
-     * @param data text
+     * Sort given array of data according to
+     * info stored in class variables.
+     * Stream the results to file (outputFile), and to stdout unless quiet.
+     * @param data text to be sorted.
      */
-    private static void saveToFile(String data) {
-
-        System.out.println(data);
+    private static void sort(ArrayList<String> data) {
 
-        try (PrintWriter pw = new PrintWriter(outputFile)) {
-            pw.println(data);
-        } catch (FileNotFoundException e) {
+        try (Sorter sorter = parallelism > 1 ? new ParallelSorter(dataType, parallelism) : Sorter.factory(dataType);
+             Output out = new Output(outputFile, encoding, !quiet)) {
+            sorter.sort(sortingType, data, top, out);
+            out.println();
+            if (out.checkError()) {
+                System.out.println("Error writing to file.");
+            }
+        } catch (IOException e) {
             e.printStackTrace();
         }
     }
 
     /**
-     * Sort given array of data according to
-     * info stored in class variables.
+     * Sort data from either a file (inputFile) or System.in
+     * through temporary files, within the memory budget.
      * Store the results to file (outputFile).
-     * @param data text to be sorted.
      */
-    private static void sort(ArrayList<String> data) {
+    private static void sortExternally() {
 
-        Sorter sorter = Sorter.factory(dataType);
-        String sortedData = sorter.sort(sortingType, data);
-        saveToFile(sortedData);
+        File tempDir = outputFile.getAbsoluteFile().getParentFile();
+        ExternalSorter sorter = new ExternalSorter(dataType, memory, tempDir);
+        try (BufferedReader in = inputFile == null
+                ? new BufferedReader(new InputStreamReader(System.in, encoding))
+                : new BufferedReader(new FileReader(inputFile, encoding));
+             Output out = new Output(outputFile, encoding, false)) {
+            sorter.sort(sortingType, top, in, out);
+            out.println();
+            if (out.checkError()) {
+                System.out.println("Error writing to file.");
+            } else {
+                System.out.printf("Sorted data saved to '%s'.%n", outputFile.getName());
+            }
+        } catch (IOException e) {
+            System.out.println("Error sorting externally.");
+            e.printStackTrace();
+        }
     }
 
     /**
@@ -181,6 +291,10 @@ public class Application {
     public static void run(String[] args) {
 
         parseArgs(args);
+        if (external) {
+            sortExternally();
+            return;
+        }
         ArrayList<String> array = getInput();
         sort(array);
     }
@@ -0,0 +1,496 @@
+package sorting;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+/**
+ * Sorts data which does not fit into memory (external merge sort).
+ * The input is read line by line, and the tokens are collected until they take
+ * about the memory budget. They are then sorted and written to a temporary file (a run),
+ * and at the end all runs are merged with a LoserTree, straight into the Output.
+ * When there are more than MAX_FAN_IN runs, groups of them are merged into longer runs first,
+ * so only a limited number of files is ever open.
+ *
+ * Sorting by count takes two passes: tokens are counted in memory until the budget is used,
+ * and the counts are written as runs sorted by token, so merging them sums up the counts
+ * of equal tokens; the totals are then sorted again by count (and by token) the same way.
+ * When only the most frequent tokens are wanted, the totals are kept in a bounded heap instead.
+ *
+ * The output is the same as the one of the in-memory Sorters.
+ */
+public class ExternalSorter {
+
+    private static final int MAX_FAN_IN = 64;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final Sorter.DataType dataType;
+    private final long memory;
+    private final File tempDir;
+
+    /**
+     * Reads and writes one kind of record of a run.
+     * @param <T> type of the records
+     */
+    private interface Codec<T> {
+
+        void write(DataOutputStream out, T value) throws IOException;
+
+        T read(DataInputStream in) throws IOException;
+
+        /**
+         * Write a record as text.
+         */
+        void print(Output out, T value);
+
+        /**
+         * Estimate the memory taken by a record, including its reference.
+         */
+        long size(T value);
+    }
+
+    /**
+     * A token and the number of times it occurs.
+     */
+    private static class Counted<K> {
+
+        private final K key;
+        private final long count;
+
+        Counted(K key, long count) {
+            this.key = key;
+            this.count = count;
+        }
+    }
+
+    /**
+     * A sorted temporary file of records.
+     */
+    private static class Run<T> {
+
+        private final File file;
+        private final long size;
+
+        Run(File file, long size) {
+            this.file = file;
+            this.size = size;
+        }
+    }
+
+    /**
+     * Create a sorter of the specified type of data.
+     * @param dataType what type of data is to be sorted
+     * @param memory the number of bytes the tokens may take in memory
+     * @param tempDir the directory of the runs
+     */
+    public ExternalSorter(Sorter.DataType dataType, long memory, File tempDir) {
+
+        this.dataType = dataType;
+        this.memory = memory;
+        this.tempDir = tempDir;
+    }
+
+    /**
+     * Sort the specified input and write the results to the output file.
+     * @param mode a sorting mode (natural|byCount)
+     * @param top the number of most frequent tokens byCount lists, or 0 to list all
+     * @param input the text to be sorted
+     * @param out where to write the sorted data
+     * @throws IOException if the input cannot be read or the runs cannot be written
+     */
+    public void sort(Sorter.SortType mode, int top, BufferedReader input, Output out) throws IOException {
+
+        if (dataType == Sorter.DataType.LONG) {
+            sort(mode, top, input, out, LONG_CODEC, Comparator.naturalOrder(), ExternalSorter::numbers);
+        } else if (dataType == Sorter.DataType.WORD) {
+            sort(mode, top, input, out, STRING_CODEC, Comparator.naturalOrder(), ExternalSorter::words);
+        } else {
+            sort(mode, top, input, out, STRING_CODEC, Comparator.naturalOrder(),
+                    (line, tokens) -> tokens.add(line));
+        }
+    }
+
+    private <K> void sort(Sorter.SortType mode, int top, BufferedReader input, Output out, Codec<K> codec,
+                          Comparator<K> order, Tokenizer<K> tokenizer) throws IOException {
+
+        List<Run<?>> temporary = new ArrayList<>();
+        try {
+            if (mode == Sorter.SortType.BY_COUNT) {
+                byCount(top, input, out, codec, order, tokenizer, temporary);
+            } else {
+                natural(input, out, codec, order, tokenizer, temporary);
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            for (Run<?> run : temporary) {
+                run.file.delete();
+            }
+        }
+    }
+
+    /**
+     * Split a line into tokens.
+     * @param <K> type of the tokens
+     */
+    private interface Tokenizer<K> {
+
+        void tokenize(String line, List<K> tokens);
+    }
+
+    private <K> void natural(BufferedReader input, Output out, Codec<K> codec, Comparator<K> order,
+                             Tokenizer<K> tokenizer, List<Run<?>> temporary) throws IOException {
+
+        List<Run<K>> runs = new ArrayList<>();
+        List<K> buffer = new ArrayList<>();
+        List<K> tokens = new ArrayList<>();
+        long bufferSize = 0;
+        long total = 0;
+
+        String line = input.readLine();
+        while (line != null) {
+            tokens.clear();
+            tokenizer.tokenize(line, tokens);
+            for (K token : tokens) {
+                buffer.add(token);
+                bufferSize += codec.size(token);
+                if (bufferSize >= memory) {
+                    buffer.sort(order);
+                    runs.add(writeRun(buffer, codec, temporary));
+                    buffer.clear();
+                    bufferSize = 0;
+                }
+            }
+            line = input.readLine();
+        }
+        buffer.sort(order);
+        runs.add(writeRun(buffer, codec, temporary));
+        buffer.clear();
+        for (Run<K> run : runs) {
+            total += run.size;
+        }
+
+        Iterator<K> sorted = merge(runs, codec, order, temporary);
+        char separator = dataType == Sorter.DataType.LINE ? '\n' : ' ';
+        out.total(label(), total)
+                .print(dataType == Sorter.DataType.LINE ? "Sorted data: \n" : "Sorted data: ");
+        while (sorted.hasNext()) {
+            codec.print(out, sorted.next());
+            out.print(separator);
+        }
+        if (dataType != Sorter.DataType.LINE) {
+            out.print('\n');
+        }
+    }
+
+    private <K> void byCount(int top, BufferedReader input, Output out, Codec<K> codec, Comparator<K> order,
+                             Tokenizer<K> tokenizer, List<Run<?>> temporary) throws IOException {
+
+        Codec<Counted<K>> countedCodec = countedCodec(codec);
+        Comparator<Counted<K>> byKey = (a, b) -> order.compare(a.key, b.key);
+        List<Run<Counted<K>>> runs = new ArrayList<>();
+        Map<K, long[]> counts = new HashMap<>();
+        List<K> tokens = new ArrayList<>();
+        long countsSize = 0;
+        long total = 0;
+
+        // first pass: count in memory, spill the counts sorted by token
+        String line = input.readLine();
+        while (line != null) {
+            tokens.clear();
+            tokenizer.tokenize(line, tokens);
+            for (K token : tokens) {
+                total++;
+                long[] count = counts.get(token);
+                if (count == null) {
+                    counts.put(token, new long[] {1});
+                    countsSize += codec.size(token) + 64;
+                    if (countsSize >= memory) {
+                        runs.add(writeRun(toCounted(counts, byKey), countedCodec, temporary));
+                        counts.clear();
+                        countsSize = 0;
+                    }
+                } else {
+                    count[0]++;
+                }
+            }
+            line = input.readLine();
+        }
+        runs.add(writeRun(toCounted(counts, byKey), countedCodec, temporary));
+        counts.clear();
+
+        // second pass: sum up the counts of equal tokens, spill the totals sorted by count, then token,
+        // or keep the top ones in a min-heap
+        Comparator<Counted<K>> byCount = Comparator.<Counted<K>>comparingLong(counted -> counted.count)
+                .thenComparing(byKey);
+        List<Run<Counted<K>>> totals = new ArrayList<>();
+        List<Counted<K>> buffer = new ArrayList<>();
+        PriorityQueue<Counted<K>> heap = new PriorityQueue<>(byCount);
+        long bufferSize = 0;
+        Iterator<Counted<K>> merged = merge(runs, countedCodec, byKey, temporary);
+        Counted<K> current = merged.hasNext() ? merged.next() : null;
+        while (current != null) {
+            K key = current.key;
+            long count = current.count;
+            current = merged.hasNext() ? merged.next() : null;
+            while (current != null && order.compare(current.key, key) == 0) {
+                count += current.count;
+                current = merged.hasNext() ? merged.next() : null;
+            }
+
+            Counted<K> counted = new Counted<>(key, count);
+            if (top > 0) {
+                heap.add(counted);
+                if (heap.size() > top) {
+                    heap.poll();
+                }
+                continue;
+            }
+            buffer.add(counted);
+            bufferSize += countedCodec.size(counted);
+            if (bufferSize >= memory) {
+                buffer.sort(byCount);
+                totals.add(writeRun(buffer, countedCodec, temporary));
+                buffer.clear();
+                bufferSize = 0;
+            }
+        }
+        buffer.sort(byCount);
+        totals.add(writeRun(buffer, countedCodec, temporary));
+        buffer.clear();
+
+        Iterator<Counted<K>> sorted = merge(totals, countedCodec, byCount, temporary);
+        out.total(label(), total);
+        while (!heap.isEmpty() || sorted.hasNext()) {
+            Counted<K> counted = heap.isEmpty() ? sorted.next() : heap.poll();
+            codec.print(out, counted.key);
+            out.count(counted.count, total);
+        }
+    }
+
+    private static <K> List<Counted<K>> toCounted(Map<K, long[]> counts, Comparator<Counted<K>> byKey) {
+
+        List<Counted<K>> list = new ArrayList<>(counts.size());
+        counts.forEach((key, count) -> list.add(new Counted<>(key, count[0])));
+        list.sort(byKey);
+        return list;
+    }
+
+    /**
+     * Merge the specified runs, first into fewer runs while there are more than MAX_FAN_IN.
+     * @return the records of all runs in order.
+     */
+    private <T> Iterator<T> merge(List<Run<T>> runs, Codec<T> codec, Comparator<T> order,
+                                  List<Run<?>> temporary) throws IOException {
+
+        while (runs.size() > MAX_FAN_IN) {
+            List<Run<T>> merged = new ArrayList<>();
+            for (int from = 0; from < runs.size(); from += MAX_FAN_IN) {
+                List<Run<T>> group = runs.subList(from, Math.min(from + MAX_FAN_IN, runs.size()));
+                long size = 0;
+                for (Run<T> run : group) {
+                    size += run.size;
+                }
+                File file = File.createTempFile("sort-run", ".tmp", tempDir);
+                Run<T> run = new Run<>(file, size);
+                temporary.add(run);
+                try (DataOutputStream out = create(file)) {
+                    Iterator<T> records = new LoserTree<>(readers(group, codec), order);
+                    while (records.hasNext()) {
+                        codec.write(out, records.next());
+                    }
+                }
+                for (Run<T> done : group) {
+                    done.file.delete();
+                }
+                merged.add(run);
+            }
+            runs = merged;
+        }
+        return new LoserTree<>(readers(runs, codec), order);
+    }
+
+    private <T> Run<T> writeRun(List<T> records, Codec<T> codec, List<Run<?>> temporary) throws IOException {
+
+        File file = File.createTempFile("sort-run", ".tmp", tempDir);
+        Run<T> run = new Run<>(file, records.size());
+        temporary.add(run);
+        try (DataOutputStream out = create(file)) {
+            for (T record : records) {
+                codec.write(out, record);
+            }
+        }
+        return run;
+    }
+
+    private static <T> List<Iterator<T>> readers(List<Run<T>> runs, Codec<T> codec) throws IOException {
+
+        List<Iterator<T>> readers = new ArrayList<>();
+        for (Run<T> run : runs) {
+            DataInputStream in = new DataInputStream(
+                    new BufferedInputStream(new FileInputStream(run.file), BUFFER_SIZE));
+            readers.add(new Iterator<T>() {
+
+                private long left = run.size;
+
+                @Override
+                public boolean hasNext() {
+                    return left > 0;
+                }
+
+                @Override
+                public T next() {
+
+                    if (left == 0) {
+                        throw new NoSuchElementException();
+                    }
+                    try {
+                        T record = codec.read(in);
+                        if (--left == 0) {
+                            in.close();
+                        }
+                        return record;
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+            });
+            if (run.size == 0) {
+                in.close();
+            }
+        }
+        return readers;
+    }
+
+    private static DataOutputStream create(File file) throws IOException {
+        return new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE));
+    }
+
+    private String label() {
+
+        switch (dataType) {
+            case LONG:
+                return "numbers";
+            case LINE:
+                return "lines";
+            default:
+                return "words";
+        }
+    }
+
+    /**
+     * Tokenize every word of a line, as WordSorter does.
+     */
+    private static void words(String line, List<String> tokens) {
+
+        WordSorter.tokenize(line, tokens::add, WordSorter::skip);
+    }
+
+    /**
+     * Tokenize every number of a line with the parser of LongSorter.
+     */
+    private static void numbers(String line, List<Long> tokens) {
+
+        LongSorter.Numbers numbers = new LongSorter.Numbers();
+        LongSorter.parseLine(line, numbers);
+        for (int i = 0; i < numbers.size(); i++) {
+            tokens.add(numbers.get(i));
+        }
+    }
+
+    private static <K> Codec<Counted<K>> countedCodec(Codec<K> codec) {
+
+        return new Codec<>() {
+
+            @Override
+            public void write(DataOutputStream out, Counted<K> value) throws IOException {
+                codec.write(out, value.key);
+                out.writeLong(value.count);
+            }
+
+            @Override
+            public Counted<K> read(DataInputStream in) throws IOException {
+                return new Counted<>(codec.read(in), in.readLong());
+            }
+
+            @Override
+            public void print(Output out, Counted<K> value) {
+                codec.print(out, value.key);
+                out.print(": ").print(value.count);
+            }
+
+            @Override
+            public long size(Counted<K> value) {
+                return codec.size(value.key) + 32;
+            }
+        };
+    }
+
+    private static final Codec<String> STRING_CODEC = new Codec<>() {
+
+        @Override
+        public void write(DataOutputStream out, String value) throws IOException {
+
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+
+        @Override
+        public String read(DataInputStream in) throws IOException {
+
+            byte[] bytes = new byte[in.readInt()];
+            in.readFully(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public void print(Output out, String value) {
+            out.print(value);
+        }
+
+        @Override
+        public long size(String value) {
+            return 56 + 2L * value.length();
+        }
+    };
+
+    private static final Codec<Long> LONG_CODEC = new Codec<>() {
+
+        @Override
+        public void write(DataOutputStream out, Long value) throws IOException {
+            out.writeLong(value);
+        }
+
+        @Override
+        public Long read(DataInputStream in) throws IOException {
+            return in.readLong();
+        }
+
+        @Override
+        public void print(Output out, Long value) {
+            out.print((long) value);
+        }
+
+        @Override
+        public long size(Long value) {
+            return 32;
+        }
+    };
+}
@@ -0,0 +1,247 @@
+package sorting;
+
+/**
+ * Counts how many times each token occurs.
+ * The tokens and their counts are kept in two arrays (open addressing with linear probing),
+ * so counting a token is a single lookup and no count is ever boxed.
+ * The entries are listed by count and then by token with a single merge sort of their slots,
+ * or only the most frequent ones are picked with a bounded heap (top-N).
+ */
+public class FrequencyMap {
+
+    private String[] keys = new String[16];
+    private int[] counts = new int[16];
+    private int size;
+    private long total;
+
+    /**
+     * Count one more occurrence of the specified token.
+     * @param key a token
+     */
+    public void add(String key) {
+        add(key, 1);
+    }
+
+    /**
+     * Count more occurrences of the specified token.
+     * @param key a token
+     * @param count the number of occurrences
+     */
+    public void add(String key, int count) {
+
+        total += count;
+        int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+        while (keys[slot] != null) {
+            if (keys[slot].equals(key)) {
+                counts[slot] += count;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        keys[slot] = key;
+        counts[slot] = count;
+        if (++size > keys.length >> 1) {
+            resize();
+        }
+    }
+
+    /**
+     * Count all occurrences counted by another map.
+     * @param other a map of the same kind of tokens
+     */
+    public void addAll(FrequencyMap other) {
+
+        for (int slot = 0; slot < other.keys.length; slot++) {
+            if (other.keys[slot] != null) {
+                add(other.keys[slot], other.counts[slot]);
+            }
+        }
+    }
+
+    private static int hash(String key) {
+
+        int h = key.hashCode() * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private void resize() {
+
+        String[] oldKeys = keys;
+        int[] oldCounts = counts;
+        keys = new String[oldKeys.length << 1];
+        counts = new int[oldKeys.length << 1];
+        int mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != null) {
+                int slot = hash(oldKeys[i]) & mask;
+                while (keys[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                counts[slot] = oldCounts[i];
+            }
+        }
+    }
+
+    /**
+     * Getter
+     * @return the number of distinct tokens.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Getter
+     * @return the number of tokens counted.
+     */
+    public long total() {
+        return total;
+    }
+
+    /**
+     * Getter
+     * @param entry an entry as returned by byCount() or top()
+     * @return its token.
+     */
+    public String key(int entry) {
+        return keys[entry];
+    }
+
+    /**
+     * Getter
+     * @param entry an entry as returned by byCount() or top()
+     * @return its count.
+     */
+    public int count(int entry) {
+        return counts[entry];
+    }
+
+    /**
+     * List all entries by count, and tokens with the same count in natural order.
+     * @return the entries in ascending order.
+     */
+    public int[] byCount() {
+
+        int[] entries = new int[size];
+        int n = 0;
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != null) {
+                entries[n++] = slot;
+            }
+        }
+        mergeSort(entries, new int[size], 0, size);
+        return entries;
+    }
+
+    /**
+     * List the n entries which come last by count (the most frequent tokens),
+     * keeping them in a min-heap of n entries instead of sorting all of them.
+     * @param n the number of entries wanted
+     * @return at most n entries in the ascending order of byCount().
+     */
+    public int[] top(int n) {
+
+        int[] heap = new int[Math.min(n, size)];
+        int heapSize = 0;
+        for (int slot = 0; slot < keys.length && heap.length > 0; slot++) {
+            if (keys[slot] == null) {
+                continue;
+            }
+            if (heapSize < heap.length) {
+                heap[heapSize] = slot;
+                siftUp(heap, heapSize++);
+            } else if (compare(slot, heap[0]) > 0) {
+                heap[0] = slot;
+                siftDown(heap, heapSize);
+            }
+        }
+
+        // popping the minimum repeatedly yields the ascending order
+        int[] result = new int[heapSize];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = heap[0];
+            heap[0] = heap[--heapSize];
+            siftDown(heap, heapSize);
+        }
+        return result;
+    }
+
+    /**
+     * Write the entries by count, as Sorter.byCount does.
+     * @param label what the tokens are (words|lines)
+     * @param top the number of most frequent tokens to write, or 0 to write all
+     * @param out where to write the entries
+     */
+    void print(String label, int top, Output out) {
+
+        // sort by count, then by key
+        int[] entries = top > 0 ? top(top) : byCount();
+
+        out.total(label, total);
+        for (int entry : entries) {
+            out.print(keys[entry]).count(counts[entry], total);
+        }
+    }
+
+    /**
+     * Compare two entries by count, then by token.
+     */
+    private int compare(int a, int b) {
+
+        int comparison = Integer.compare(counts[a], counts[b]);
+        return comparison != 0 ? comparison : keys[a].compareTo(keys[b]);
+    }
+
+    private void mergeSort(int[] entries, int[] buffer, int from, int to) {
+
+        if (to - from < 2) {
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        mergeSort(entries, buffer, from, middle);
+        mergeSort(entries, buffer, middle, to);
+
+        System.arraycopy(entries, from, buffer, from, to - from);
+        int left = from;
+        int right = middle;
+        for (int i = from; i < to; i++) {
+            if (right == to || left < middle && compare(buffer[left], buffer[right]) <= 0) {
+                entries[i] = buffer[left++];
+            } else {
+                entries[i] = buffer[right++];
+            }
+        }
+    }
+
+    private void siftUp(int[] heap, int i) {
+
+        while (i > 0 && compare(heap[i], heap[(i - 1) / 2]) < 0) {
+            int parent = (i - 1) / 2;
+            int swap = heap[i];
+            heap[i] = heap[parent];
+            heap[parent] = swap;
+            i = parent;
+        }
+    }
+
+    private void siftDown(int[] heap, int size) {
+
+        int i = 0;
+        while (2 * i + 1 < size) {
+            int child = 2 * i + 1;
+            if (child + 1 < size && compare(heap[child + 1], heap[child]) < 0) {
+                child++;
+            }
+            if (compare(heap[child], heap[i]) >= 0) {
+                return;
+            }
+            int swap = heap[i];
+            heap[i] = heap[child];
+            heap[child] = swap;
+            i = child;
+        }
+    }
+}
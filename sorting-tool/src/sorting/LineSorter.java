@@ -14,17 +14,10 @@ public class LineSorter implements Sorter {
      * Tokenize each list element.
      */
     @Override
-    public String natural(List<String> data) {
+    public void natural(List<String> data, Output out) {
 
         data.sort(null);
-
-        // prepare returning string
-        StringBuilder result = new StringBuilder();
-        result.append(String.format("Total lines: %s%n", data.size()))
-                .append("Sorted data: \n");
-        data.forEach((line) -> result.append(line).append("\n"));
-
-        return result.toString();
+        print(data.size(), data.iterator(), out);
     }
 
     /**
@@ -32,40 +25,26 @@ public class LineSorter implements Sorter {
      * Tokenize each list element.
      */
     @Override
-    public String byCount(List<String> data) {
-
-        Map<String, Integer> map = new HashMap<>();
-        int counter = 0;
+    public void byCount(List<String> data, int top, Output out) {
 
+        FrequencyMap map = new FrequencyMap();
         for (String line : data) {
-            counter++;
-            if (map.containsKey(line)) {
-                map.put(line, map.get(line) + 1);
-            } else {
-                map.put(line, 1);
-            }
+            map.add(line);
         }
 
-        List<Map.Entry<String, Integer>> listOfEntries = new ArrayList<>(map.entrySet());
-
-        // sort by keys
-        listOfEntries.sort(Map.Entry.comparingByKey());
-        // then sort by values
-        listOfEntries.sort(Map.Entry.comparingByValue());
+        map.print("lines", top, out);
+    }
 
-        // prepare returning string
-        StringBuilder result = new StringBuilder();
-        int finalCounter = counter;
-        result.append(String.format("Total lines: %s%n", counter));
-        listOfEntries.forEach((entry) -> {
-            long percentage = Math.round(entry.getValue() / (double) finalCounter * 100);
-            result.append(String.format("%s: %d time(s), %d%%%n",
-                    entry.getKey(),
-                    entry.getValue(),
-                    percentage));
-        });
+    /**
+     * Write lines sorted naturally.
+     * @param size the number of lines
+     * @param lines the sorted lines
+     * @param out where to write them
+     */
+    static void print(int size, Iterator<String> lines, Output out) {
 
-        return result.toString();
+        out.total("lines", size)
+                .print("Sorted data: \n");
+        lines.forEachRemaining((line) -> out.print(line).print('\n'));
     }
-
 }
@@ -1,92 +1,295 @@
 package sorting;
 
 import java.util.*;
+import java.util.function.Consumer;
 
 /**
  * Class responsible for sorting numeric data (integers).
  * Each of its methods takes a list of data
  * and treats every number of each list element
  * as a token to be sorted.
+ * The numbers are parsed straight from the text into a growable long[],
+ * and sorted there by a radix sort, so no number is ever boxed.
  */
 public class LongSorter implements Sorter {
 
+    private static final int RADIX_BITS = 8;
+    private static final int RADIX = 1 << RADIX_BITS;
+    private static final int SMALL_SIZE = 64;
+
     /**
-     * {@inheritdoc}
-     * Tokenize every number (integer/long) of each list element.
+     * A growable array of numbers.
      */
-    @Override
-    public String natural(List<String> data) {
+    static class Numbers {
 
-        ArrayList<Long> array = new ArrayList<>();
+        private long[] values = new long[16];
+        private int size;
 
-        for (String line : data) {
-            for (String number : line.split("\\s+")) {
-                if (number.matches("-?\\d+")) {
-                    array.add(Long.parseLong(number));
+        void add(long value) {
+
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size << 1);
+            }
+            values[size++] = value;
+        }
+
+        long get(int index) {
+            return values[index];
+        }
+
+        int size() {
+            return size;
+        }
+
+        /**
+         * Sort the numbers with a radix sort.
+         */
+        void sort() {
+            radixSort(values, size);
+        }
+
+        /**
+         * Merge two arrays of sorted numbers.
+         * @return a new array of all numbers, sorted.
+         */
+        static Numbers merge(Numbers a, Numbers b) {
+
+            Numbers merged = new Numbers();
+            merged.values = new long[Math.max(a.size + b.size, 1)];
+            merged.size = a.size + b.size;
+            int i = 0;
+            int j = 0;
+            for (int k = 0; k < merged.size; k++) {
+                if (j == b.size || i < a.size && a.values[i] <= b.values[j]) {
+                    merged.values[k] = a.values[i++];
                 } else {
-                    System.out.printf("\"%s\" isn't a number. It's skipped.%n", number);
+                    merged.values[k] = b.values[j++];
                 }
             }
+            return merged;
         }
+    }
 
-        array.sort(null);
+    /**
+     * {@inheritdoc}
+     * Tokenize every number (integer/long) of each list element.
+     */
+    @Override
+    public void natural(List<String> data, Output out) {
+
+        Numbers numbers = parse(data);
+        radixSort(numbers.values, numbers.size);
+        print(numbers, out);
+    }
 
-        // prepare returning string
-        StringBuilder result = new StringBuilder();
-        result.append(String.format("Total numbers: %s%n", array.size()))
-                .append("Sorted data: ");
-        array.forEach((number) -> result.append(number).append(" "));
-        result.append("\n");
+    /**
+     * Write numbers sorted naturally.
+     * @param numbers the sorted numbers
+     * @param out where to write them
+     */
+    static void print(Numbers numbers, Output out) {
 
-        return result.toString();
+        out.total("numbers", numbers.size)
+                .print("Sorted data: ");
+        for (int i = 0; i < numbers.size; i++) {
+            out.print(numbers.values[i]).print(' ');
+        }
+        out.print('\n');
     }
 
     /**
      * {@inheritdoc}
      * Tokenize every number (integer/long) of each list element.
+     * Equal numbers are next to each other once sorted, so they are counted in runs,
+     * and the runs are sorted by count with a radix sort of count and index packed into a long.
      */
     @Override
-    public String byCount(List<String> data) {
+    public void byCount(List<String> data, int top, Output out) {
+
+        Numbers numbers = parse(data);
+        radixSort(numbers.values, numbers.size);
+        printByCount(numbers, top, out);
+    }
+
+    /**
+     * Count and write numbers by count.
+     * @param numbers the sorted numbers
+     * @param top the number of most frequent numbers to write, or 0 to write all
+     * @param out where to write them
+     */
+    static void printByCount(Numbers numbers, int top, Output out) {
+
+        long[] values = numbers.values;
+        int counter = numbers.size;
+
+        // count runs of equal numbers, which are then in ascending order
+        long[] distinct = new long[counter];
+        long[] entries = new long[counter];
+        int size = 0;
+        for (int i = 0; i < counter; ) {
+            int start = i;
+            while (i < counter && values[i] == values[start]) {
+                i++;
+            }
+            distinct[size] = values[start];
+            entries[size] = (long) (i - start) << 32 | size;
+            size++;
+        }
 
-        Map<Long, Integer> map = new HashMap<>();
-        int counter = 0;
+        // by count, then by number, as the index follows the order of the numbers
+        radixSort(entries, size);
+
+        // write sorted data
+        // the most frequent numbers are the last ones
+        out.total("numbers", counter);
+        for (int i = top > 0 ? Math.max(0, size - top) : 0; i < size; i++) {
+            out.print(distinct[(int) entries[i]]).count(entries[i] >>> 32, counter);
+        }
+    }
+
+    /**
+     * Parse every number of the data.
+     * @param data listed text line by line.
+     * @return the numbers in order of appearance.
+     */
+    static Numbers parse(List<String> data) {
 
+        Numbers numbers = new Numbers();
         for (String line : data) {
-            for (String text : line.split("\\s+")) {
-                if (text.matches("-?\\d+")) {
-                    counter++;
-                    Long number = Long.parseLong(text);
-                    if (map.containsKey(number)) {
-                        map.put(number, map.get(number) + 1);
-                    } else {
-                        map.put(number, 1);
+            parseLine(line, numbers);
+        }
+        return numbers;
+    }
+
+    /**
+     * Parse the numbers of a line separated by whitespace, skipping (and reporting) any other token,
+     * just as splitting the line by "\\s+" and matching each token with "-?\\d+" would.
+     * Numbers which don't fit into a long are skipped as well.
+     * @param line a line of text
+     * @param numbers where to add the numbers
+     */
+    static void parseLine(String line, Numbers numbers) {
+        parseLine(line, numbers, LongSorter::skip);
+    }
+
+    /**
+     * Parse the numbers of a line, as parseLine(line, numbers) does.
+     * @param line a line of text
+     * @param numbers where to add the numbers
+     * @param skipped takes every token which isn't a number
+     */
+    static void parseLine(String line, Numbers numbers, Consumer<String> skipped) {
+
+        int length = line.length();
+        int i = 0;
+        while (i < length && isWhitespace(line.charAt(i))) {
+            i++;
+        }
+        if (length == 0 || i > 0 && i < length) {
+            // split() yields an empty first token here, but no token at all for a blank line
+            skipped.accept("");
+        }
+        while (i < length) {
+            while (i < length && isWhitespace(line.charAt(i))) {
+                i++;
+            }
+            if (i == length) {
+                break;
+            }
+
+            int start = i;
+            boolean negative = line.charAt(i) == '-';
+            if (negative) {
+                i++;
+            }
+            int digits = i;
+            long value = 0;
+            boolean valid = true;
+            while (i < length && !isWhitespace(line.charAt(i))) {
+                int digit = line.charAt(i) - '0';
+                if (digit < 0 || digit > 9) {
+                    valid = false;
+                } else if (valid) {
+                    // accumulate negatively, as Long.MIN_VALUE has no positive counterpart
+                    if (value < (Long.MIN_VALUE + digit) / 10) {
+                        valid = false;
                     }
-                } else {
-                    System.out.printf("\"%s\" isn't a number. It's skipped.%n", text);
+                    value = value * 10 - digit;
                 }
+                i++;
+            }
+
+            if (valid && i > digits && (negative || value != Long.MIN_VALUE)) {
+                numbers.add(negative ? value : -value);
+            } else {
+                skipped.accept(line.substring(start, i));
             }
         }
+    }
 
-        List<Map.Entry<Long, Integer>> listOfEntries = new ArrayList<>(map.entrySet());
+    /**
+     * Report a token which isn't a number.
+     * @param token the token skipped
+     */
+    static void skip(String token) {
+        System.out.printf("\"%s\" isn't a number. It's skipped.%n", token);
+    }
 
-        // sort by keys
-        listOfEntries.sort(Map.Entry.comparingByKey());
-        // then sort by values
-        listOfEntries.sort(Map.Entry.comparingByValue());
+    /**
+     * Check for a whitespace character as matched by "\\s".
+     */
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
 
-        // prepare returning string
-        final int finalCounter = counter;
-        StringBuilder result = new StringBuilder();
-        result.append(String.format("Total numbers: %s%n", finalCounter));
-        listOfEntries.forEach((entry) -> {
-            long percentage = Math.round(entry.getValue() / (double) finalCounter * 100);
-            result.append(String.format("%s: %d time(s), %d%%%n",
-                    entry.getKey(),
-                    entry.getValue(),
-                    percentage));
-        });
+    /**
+     * Sort numbers with a least significant digit radix sort, one byte per pass.
+     * The sign bit is flipped, so negative numbers come first,
+     * and passes in which all numbers have the same byte are skipped.
+     * @param values the numbers
+     * @param size the number of values to sort
+     */
+    static void radixSort(long[] values, int size) {
 
-        return result.toString();
-    }
+        if (size <= SMALL_SIZE) {
+            Arrays.sort(values, 0, size);
+            return;
+        }
 
+        int passes = Long.SIZE / RADIX_BITS;
+        int[][] counts = new int[passes][RADIX];
+        for (int i = 0; i < size; i++) {
+            long key = values[i] ^ Long.MIN_VALUE;
+            for (int pass = 0; pass < passes; pass++) {
+                counts[pass][(int) (key >>> (pass * RADIX_BITS)) & (RADIX - 1)]++;
+            }
+        }
+
+        long[] from = values;
+        long[] to = new long[size];
+        for (int pass = 0; pass < passes; pass++) {
+            int[] count = counts[pass];
+            int shift = pass * RADIX_BITS;
+            if (count[(int) ((from[0] ^ Long.MIN_VALUE) >>> shift) & (RADIX - 1)] == size) {
+                continue;
+            }
+
+            int offset = 0;
+            for (int digit = 0; digit < RADIX; digit++) {
+                int next = offset + count[digit];
+                count[digit] = offset;
+                offset = next;
+            }
+            for (int i = 0; i < size; i++) {
+                long value = from[i];
+                to[count[(int) ((value ^ Long.MIN_VALUE) >>> shift) & (RADIX - 1)]++] = value;
+            }
+            long[] swap = from;
+            from = to;
+            to = swap;
+        }
+        if (from != values) {
+            System.arraycopy(from, 0, values, 0, size);
+        }
+    }
 }
@@ -0,0 +1,120 @@
+package sorting;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Merges k sorted sources into one sorted sequence (k-way merge).
+ * The sources are the leaves of a tournament tree, and every inner node keeps the loser
+ * of the match played there, while the overall winner is kept apart.
+ * Taking the winner only replays the matches on the path from its leaf to the root,
+ * so each element costs log2(k) comparisons, against its path's losers only.
+ * Equal elements leave in the order of their sources, so the merge is stable.
+ * @param <T> type of the elements
+ */
+public class LoserTree<T> implements Iterator<T> {
+
+    private final List<? extends Iterator<T>> sources;
+    private final Comparator<? super T> comparator;
+    private final Object[] heads;
+    private final boolean[] exhausted;
+    private final int[] losers;
+    private int winner;
+
+    /**
+     * Start merging the specified sources.
+     * @param sources iterators, each in ascending order
+     * @param comparator the order of the sources
+     */
+    public LoserTree(List<? extends Iterator<T>> sources, Comparator<? super T> comparator) {
+
+        int k = sources.size();
+        this.sources = sources;
+        this.comparator = comparator;
+        this.heads = new Object[k];
+        this.exhausted = new boolean[k];
+        this.losers = new int[Math.max(k, 1)];
+
+        for (int i = 0; i < k; i++) {
+            advance(i);
+        }
+        winner = k == 0 ? -1 : build(1);
+    }
+
+    /**
+     * Play the matches of the subtree of the specified node and store its losers.
+     * The leaves of source i are node k + i.
+     * @param node a node, 1 being the root
+     * @return the winner of the subtree.
+     */
+    private int build(int node) {
+
+        int k = heads.length;
+        if (node >= k) {
+            return node - k;
+        }
+        int left = build(2 * node);
+        int right = build(2 * node + 1);
+        if (beats(left, right)) {
+            losers[node] = right;
+            return left;
+        }
+        losers[node] = left;
+        return right;
+    }
+
+    /**
+     * Check if a source's head comes before another's.
+     * Exhausted sources lose every match, and ties go to the lower source.
+     */
+    @SuppressWarnings("unchecked")
+    private boolean beats(int a, int b) {
+
+        if (exhausted[a] || exhausted[b]) {
+            return !exhausted[a] && exhausted[b] || exhausted[a] == exhausted[b] && a < b;
+        }
+        int comparison = comparator.compare((T) heads[a], (T) heads[b]);
+        return comparison < 0 || comparison == 0 && a < b;
+    }
+
+    private void advance(int source) {
+
+        Iterator<T> iterator = sources.get(source);
+        if (iterator.hasNext()) {
+            heads[source] = iterator.next();
+        } else {
+            heads[source] = null;
+            exhausted[source] = true;
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        return winner >= 0 && !exhausted[winner];
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T next() {
+
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        T result = (T) heads[winner];
+        advance(winner);
+
+        // replay the matches from the winner's leaf up to the root
+        int candidate = winner;
+        for (int node = (winner + heads.length) / 2; node > 0; node /= 2) {
+            if (beats(losers[node], candidate)) {
+                int loser = candidate;
+                candidate = losers[node];
+                losers[node] = loser;
+            }
+        }
+        winner = candidate;
+        return result;
+    }
+}
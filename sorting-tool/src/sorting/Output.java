@@ -0,0 +1,180 @@
+package sorting;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+
+/**
+ * Streams sorted data to a file, and optionally echoes it to the standard output.
+ * The text is collected in a buffer of chars, which is encoded and written to every
+ * destination whenever it is full, so the whole result is never held in memory,
+ * and numbers are written digit by digit instead of through String.format.
+ * Like a PrintWriter, it doesn't throw: checkError() tells if writing failed.
+ */
+public class Output implements Closeable {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int MAX_DIGITS = 20;
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+
+    private final Writer file;
+    private final Writer echo;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int size;
+    private boolean error;
+
+    /**
+     * Create (or truncate) the output file.
+     * @param file the file to write to
+     * @param charset the encoding of the file
+     * @param echo whether to write to the standard output as well
+     * @throws IOException if the file cannot be created
+     */
+    public Output(File file, Charset charset, boolean echo) throws IOException {
+
+        this.file = new OutputStreamWriter(new FileOutputStream(file), charset);
+        this.echo = echo ? new OutputStreamWriter(System.out, Charset.defaultCharset()) : null;
+    }
+
+    /**
+     * Write text.
+     * @param text any text
+     * @return this output.
+     */
+    public Output print(String text) {
+
+        int length = text.length();
+        int from = 0;
+        while (from < length) {
+            if (size == buffer.length) {
+                flush();
+            }
+            int to = Math.min(length, from + buffer.length - size);
+            text.getChars(from, to, buffer, size);
+            size += to - from;
+            from = to;
+        }
+        return this;
+    }
+
+    /**
+     * Write a character.
+     * @param c any character
+     * @return this output.
+     */
+    public Output print(char c) {
+
+        if (size == buffer.length) {
+            flush();
+        }
+        buffer[size++] = c;
+        return this;
+    }
+
+    /**
+     * Write a number in decimal, straight into the buffer.
+     * @param number any number
+     * @return this output.
+     */
+    public Output print(long number) {
+
+        if (number == Long.MIN_VALUE) {
+            return print(Long.toString(number));
+        }
+        if (size + MAX_DIGITS > buffer.length) {
+            flush();
+        }
+        if (number < 0) {
+            buffer[size++] = '-';
+            number = -number;
+        }
+        int digits = 1;
+        for (long rest = number / 10; rest > 0; rest /= 10) {
+            digits++;
+        }
+        size += digits;
+        for (int i = size - 1; i >= size - digits; i--) {
+            buffer[i] = (char) ('0' + number % 10);
+            number /= 10;
+        }
+        return this;
+    }
+
+    /**
+     * Write a line separator.
+     * @return this output.
+     */
+    public Output println() {
+        return print(LINE_SEPARATOR);
+    }
+
+    /**
+     * Write the header of sorted data, e.g. "Total words: 42".
+     * @param label what the tokens are (words|lines|numbers)
+     * @param total the number of tokens
+     * @return this output.
+     */
+    public Output total(String label, long total) {
+        return print("Total ").print(label).print(": ").print(total).println();
+    }
+
+    /**
+     * Write the count of the token just written and its share of all tokens,
+     * e.g. ": 2 time(s), 5%".
+     * @param count the number of times the token occurs
+     * @param total the number of tokens
+     * @return this output.
+     */
+    public Output count(long count, long total) {
+
+        long percentage = Math.round(count / (double) total * 100);
+        return print(": ").print(count).print(" time(s), ").print(percentage).print('%').println();
+    }
+
+    /**
+     * Write the buffer to the file (and the standard output).
+     */
+    public void flush() {
+
+        try {
+            file.write(buffer, 0, size);
+            file.flush();
+            if (echo != null) {
+                echo.write(buffer, 0, size);
+                echo.flush();
+            }
+        } catch (IOException e) {
+            error = true;
+        }
+        size = 0;
+    }
+
+    /**
+     * Flush the buffer and check for an error.
+     * @return true if anything couldn't be written.
+     */
+    public boolean checkError() {
+
+        flush();
+        return error;
+    }
+
+    /**
+     * Flush the buffer and close the file (but not the standard output).
+     */
+    @Override
+    public void close() {
+
+        flush();
+        try {
+            file.close();
+        } catch (IOException e) {
+            error = true;
+        }
+    }
+}
@@ -0,0 +1,266 @@
+package sorting;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BinaryOperator;
+import java.util.function.Consumer;
+
+/**
+ * Sorts data on several threads of a ForkJoinPool.
+ * The lines are split in halves, recursively, until a chunk has few enough lines,
+ * and the threads of the pool steal the halves not yet taken by the thread which split them.
+ * Each chunk is tokenized and either sorted (natural) or counted in its own FrequencyMap (byCount),
+ * and the results of the halves are merged on the way back: frequency maps by adding
+ * the smaller one to the larger one, sorted numbers by a linear merge, while the sorted runs
+ * of words and lines are merged at once with a LoserTree, straight into the Output.
+ * Numbers are sorted by the radix sort of LongSorter in each chunk,
+ * and counted once all of them are merged.
+ *
+ * The tokens which are skipped are reported once the chunks are done, in the order of the input,
+ * so the output is the same as the one of the other Sorters.
+ */
+public class ParallelSorter implements Sorter {
+
+    private static final int CHUNKS_PER_THREAD = 4;
+    private static final int MIN_CHUNK_SIZE = 1024;
+
+    private final Sorter.DataType dataType;
+    private final ForkJoinPool pool;
+
+    /**
+     * The result of a chunk of lines, and the tokens skipped there.
+     * @param <R> type of the result
+     */
+    private static class Chunk<R> {
+
+        private R result;
+        private final List<String> skipped = new ArrayList<>();
+    }
+
+    /**
+     * Computes the result of a chunk of lines.
+     * @param <R> type of the result
+     */
+    private interface Leaf<R> {
+
+        R compute(List<String> lines, Consumer<String> skipped);
+    }
+
+    /**
+     * Splits a range of lines in halves until it is small enough,
+     * and merges the results of the halves.
+     * @param <R> type of the result
+     */
+    private static class Split<R> extends RecursiveTask<Chunk<R>> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final List<String> data;
+        private final int from;
+        private final int to;
+        private final int chunkSize;
+        private final Leaf<R> leaf;
+        private final BinaryOperator<R> merge;
+
+        Split(List<String> data, int from, int to, int chunkSize, Leaf<R> leaf, BinaryOperator<R> merge) {
+
+            this.data = data;
+            this.from = from;
+            this.to = to;
+            this.chunkSize = chunkSize;
+            this.leaf = leaf;
+            this.merge = merge;
+        }
+
+        @Override
+        protected Chunk<R> compute() {
+
+            if (to - from <= chunkSize) {
+                Chunk<R> chunk = new Chunk<>();
+                chunk.result = leaf.compute(data.subList(from, to), chunk.skipped::add);
+                return chunk;
+            }
+
+            int middle = (from + to) >>> 1;
+            Split<R> left = new Split<>(data, from, middle, chunkSize, leaf, merge);
+            left.fork();
+            Chunk<R> right = new Split<>(data, middle, to, chunkSize, leaf, merge).compute();
+            Chunk<R> chunk = left.join();
+            chunk.result = merge.apply(chunk.result, right.result);
+            chunk.skipped.addAll(right.skipped);
+            return chunk;
+        }
+    }
+
+    /**
+     * Create a sorter of the specified type of data.
+     * @param dataType what type of data is to be sorted
+     * @param parallelism the number of threads
+     */
+    public ParallelSorter(Sorter.DataType dataType, int parallelism) {
+
+        this.dataType = dataType;
+        this.pool = new ForkJoinPool(parallelism);
+    }
+
+    /**
+     * {@inheritdoc}
+     * Tokenize and sort chunks of the list in parallel, then merge them.
+     */
+    @Override
+    public void natural(List<String> data, Output out) {
+
+        switch (dataType) {
+            case LONG:
+                LongSorter.print(invoke(data, ParallelSorter::sortNumbers, LongSorter.Numbers::merge), out);
+                break;
+            case LINE:
+                List<List<String>> lines = invoke(data, ParallelSorter::sortLines, ParallelSorter::concat);
+                LineSorter.print(size(lines), merge(lines), out);
+                break;
+            default:
+                List<List<String>> words = invoke(data, ParallelSorter::sortWords, ParallelSorter::concat);
+                WordSorter.print(size(words), merge(words), out);
+        }
+    }
+
+    /**
+     * {@inheritdoc}
+     * Tokenize and count chunks of the list in parallel, then merge the counts.
+     */
+    @Override
+    public void byCount(List<String> data, int top, Output out) {
+
+        switch (dataType) {
+            case LONG:
+                LongSorter.Numbers numbers = invoke(data, ParallelSorter::sortNumbers, LongSorter.Numbers::merge);
+                LongSorter.printByCount(numbers, top, out);
+                break;
+            case LINE:
+                invoke(data, ParallelSorter::countLines, ParallelSorter::merge).print("lines", top, out);
+                break;
+            default:
+                invoke(data, ParallelSorter::countWords, ParallelSorter::merge).print("words", top, out);
+        }
+    }
+
+    /**
+     * Shut the pool down, once the data is sorted.
+     */
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+
+    /**
+     * Run the chunks on the pool, then report the skipped tokens.
+     * @return the merged result of all chunks.
+     */
+    private <R> R invoke(List<String> data, Leaf<R> leaf, BinaryOperator<R> merge) {
+
+        int chunks = pool.getParallelism() * CHUNKS_PER_THREAD;
+        int chunkSize = Math.max(MIN_CHUNK_SIZE, (data.size() + chunks - 1) / chunks);
+        Chunk<R> chunk = pool.invoke(new Split<>(data, 0, data.size(), chunkSize, leaf, merge));
+        chunk.skipped.forEach(dataType == Sorter.DataType.LONG ? LongSorter::skip : WordSorter::skip);
+        return chunk.result;
+    }
+
+    private static LongSorter.Numbers sortNumbers(List<String> lines, Consumer<String> skipped) {
+
+        LongSorter.Numbers numbers = new LongSorter.Numbers();
+        for (String line : lines) {
+            LongSorter.parseLine(line, numbers, skipped);
+        }
+        numbers.sort();
+        return numbers;
+    }
+
+    private static List<List<String>> sortLines(List<String> lines, Consumer<String> skipped) {
+
+        List<String> sorted = new ArrayList<>(lines);
+        sorted.sort(null);
+        List<List<String>> runs = new ArrayList<>();
+        runs.add(sorted);
+        return runs;
+    }
+
+    private static List<List<String>> sortWords(List<String> lines, Consumer<String> skipped) {
+
+        List<String> words = new ArrayList<>();
+        for (String line : lines) {
+            WordSorter.tokenize(line, words::add, skipped);
+        }
+        words.sort(null);
+        List<List<String>> runs = new ArrayList<>();
+        runs.add(words);
+        return runs;
+    }
+
+    private static FrequencyMap countLines(List<String> lines, Consumer<String> skipped) {
+
+        FrequencyMap map = new FrequencyMap();
+        for (String line : lines) {
+            map.add(line);
+        }
+        return map;
+    }
+
+    private static FrequencyMap countWords(List<String> lines, Consumer<String> skipped) {
+
+        FrequencyMap map = new FrequencyMap();
+        for (String line : lines) {
+            WordSorter.tokenize(line, map::add, skipped);
+        }
+        return map;
+    }
+
+    /**
+     * Collect the sorted runs of two halves, in order.
+     * @return the runs of a followed by those of b.
+     */
+    private static List<List<String>> concat(List<List<String>> a, List<List<String>> b) {
+
+        a.addAll(b);
+        return a;
+    }
+
+    private static int size(List<List<String>> runs) {
+
+        int size = 0;
+        for (List<String> run : runs) {
+            size += run.size();
+        }
+        return size;
+    }
+
+    /**
+     * Merge sorted runs.
+     * @return the elements of all runs, in order.
+     */
+    private static Iterator<String> merge(List<List<String>> runs) {
+
+        List<Iterator<String>> iterators = new ArrayList<>();
+        for (List<String> run : runs) {
+            iterators.add(run.iterator());
+        }
+        return new LoserTree<>(iterators, Comparator.naturalOrder());
+    }
+
+    /**
+     * Merge two frequency maps, adding the smaller one to the larger one.
+     * @return the larger map, with the counts of both.
+     */
+    private static FrequencyMap merge(FrequencyMap a, FrequencyMap b) {
+
+        if (a.size() < b.size()) {
+            b.addAll(a);
+            return b;
+        }
+        a.addAll(b);
+        return a;
+    }
+}
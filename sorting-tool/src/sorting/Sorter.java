@@ -7,7 +7,7 @@ import java.util.List;
  *    natural = sort elements lexicographically.
  *    byCount = sort elements by count of occurrence.
  */
-public interface Sorter {
+public interface Sorter extends AutoCloseable {
 
     enum DataType {LONG, LINE, WORD}
     enum SortType {NATURAL, BY_COUNT}
@@ -15,34 +15,64 @@ public interface Sorter {
     /**
      * Sort data tokens lexicographically.
      * @param data listed text line by line.
-     * @return sorted data.
+     * @param out where to write the sorted data.
      */
-    String natural(List<String> data);
+    void natural(List<String> data, Output out);
 
     /**
      * Sort data tokens by count of occurrence.
      * @param data listed text line by line.
-     * @return sorted data.
+     * @param out where to write the sorted data.
      */
-    String byCount(List<String> data);
+    default void byCount(List<String> data, Output out) {
+        byCount(data, 0, out);
+    }
+
+    /**
+     * Sort data tokens by count of occurrence,
+     * listing only the most frequent ones if top is positive.
+     * @param data listed text line by line.
+     * @param top the number of most frequent tokens to list, or 0 to list all.
+     * @param out where to write the sorted data.
+     */
+    void byCount(List<String> data, int top, Output out);
+
+    /**
+     * Run the specified sorting method, to sort the specified data
+     * @param mode a sorting mode (natural|byCount).
+     * @param data text to be sorted.
+     * @param out where to write the sorted data.
+     */
+    default void sort(SortType mode, List<String> data, Output out) {
+        sort(mode, data, 0, out);
+    }
 
     /**
      * Run the specified sorting method, to sort the specified data
      * @param mode a sorting mode (natural|byCount).
      * @param data text to be sorted.
-     * @return sorted data
+     * @param top the number of most frequent tokens byCount lists, or 0 to list all.
+     * @param out where to write the sorted data.
      */
-    default String sort(SortType mode, List<String> data) {
+    default void sort(SortType mode, List<String> data, int top, Output out) {
 
         switch (mode) {
             case NATURAL:
-                return natural(data);
+                natural(data, out);
+                break;
             case BY_COUNT:
-                return byCount(data);
+                byCount(data, top, out);
+                break;
             default:
                 System.out.println("Invalid mode");
         }
-        return null;
+    }
+
+    /**
+     * Release the resources of the sorter, if any (e.g. threads).
+     */
+    @Override
+    default void close() {
     }
 
     /**
@@ -1,6 +1,8 @@
 package sorting;
 
 import java.util.*;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
 
 /**
  * Class responsible for sorting alphabetical data (words).
@@ -10,35 +12,23 @@ import java.util.*;
  */
 public class WordSorter implements Sorter {
 
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern WORD = Pattern.compile("[\\w-]+");
+
     /**
      * {@inheritdoc}
      * Tokenize every word of each list element.
      */
     @Override
-    public String natural(List<String> data) {
+    public void natural(List<String> data, Output out) {
 
         ArrayList<String> array = new ArrayList<>();
-
         for (String line : data) {
-            for (String word : line.split("\\s+")) {
-                if (word.matches("[\\w-]+")) {
-                    array.add(word);
-                } else {
-                    System.out.printf("\"%s\" isn't a word. It's skipped.%n", word);
-                }
-            }
+            tokenize(line, array::add, WordSorter::skip);
         }
 
         array.sort(null);
-
-        // prepare returning string
-        StringBuilder result = new StringBuilder();
-        result.append(String.format("Total words: %s%n", array.size()))
-                .append("Sorted data: ");
-        array.forEach((word) -> result.append(word).append(" "));
-        result.append("\n");
-
-        return result.toString();
+        print(array.size(), array.iterator(), out);
     }
 
     /**
@@ -46,46 +36,52 @@ public class WordSorter implements Sorter {
      * Tokenize every word of each list element.
      */
     @Override
-    public String byCount(List<String> data) {
-
-        Map<String, Integer> map = new HashMap<>();
-        int counter = 0;
+    public void byCount(List<String> data, int top, Output out) {
 
+        FrequencyMap map = new FrequencyMap();
         for (String line : data) {
-            for (String word : line.split("\\s+")) {
-                if (word.matches("[\\w-]+")) {
-                    counter++;
-                    if (map.containsKey(word)) {
-                        map.put(word, map.get(word) + 1);
-                    } else {
-                        map.put(word, 1);
-                    }
-                } else {
-                    System.out.printf("\"%s\" isn't a word. It's skipped.%n", word);
-                }
-            }
+            tokenize(line, map::add, WordSorter::skip);
         }
 
-        List<Map.Entry<String, Integer>> listOfEntries = new ArrayList<>(map.entrySet());
+        map.print("words", top, out);
+    }
 
-        // sort by keys
-        listOfEntries.sort(Map.Entry.comparingByKey());
-        // then sort by values
-        listOfEntries.sort(Map.Entry.comparingByValue());
+    /**
+     * Split a line by whitespace into words, made of word characters and hyphens.
+     * @param line a line of text
+     * @param words takes every word
+     * @param skipped takes every other token
+     */
+    static void tokenize(String line, Consumer<String> words, Consumer<String> skipped) {
 
-        // prepare returning string
-        final int finalCounter = counter;
-        StringBuilder result = new StringBuilder();
-        result.append(String.format("Total words: %s%n", counter));
-        listOfEntries.forEach((entry) -> {
-                        long percentage = Math.round(entry.getValue() / (double) finalCounter * 100);
-                        result.append(String.format("%s: %d time(s), %d%%%n",
-                                                                            entry.getKey(),
-                                                                            entry.getValue(),
-                                                                            percentage));
-                    });
+        for (String word : WHITESPACE.split(line)) {
+            if (WORD.matcher(word).matches()) {
+                words.accept(word);
+            } else {
+                skipped.accept(word);
+            }
+        }
+    }
 
-        return result.toString();
+    /**
+     * Report a token which isn't a word.
+     * @param token the token skipped
+     */
+    static void skip(String token) {
+        System.out.printf("\"%s\" isn't a word. It's skipped.%n", token);
     }
 
+    /**
+     * Write words sorted naturally.
+     * @param size the number of words
+     * @param words the sorted words
+     * @param out where to write them
+     */
+    static void print(int size, Iterator<String> words, Output out) {
+
+        out.total("words", size)
+                .print("Sorted data: ");
+        words.forEachRemaining((word) -> out.print(word).print(' '));
+        out.print('\n');
+    }
 }